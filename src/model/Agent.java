@@ -2,11 +2,14 @@
 package model;
 import java.util.ArrayList;
 import java.util.List;
-import multiThreads.ThreadScheduledField;
+import multiThreads.Access;
+import multiThreads.AgentManager;
+import multiThreads.ByteDoubleBuffer;
 import multiThreads.ThreadScheduledMethod;
+import multiThreads.ViewBinder;
+import networkDataLoader.CsrGraph;
+import networkDataLoader.IdMapping;
 import repast.simphony.context.Context;
-import repast.simphony.engine.environment.RunEnvironment;
-import repast.simphony.parameter.Parameters;
 import repast.simphony.space.graph.Network;
 import repast.simphony.util.ContextUtils;
 
@@ -15,98 +18,183 @@ import repast.simphony.util.ContextUtils;
  * Handles state transitions (susceptible, infected, recovered, vaccinated)
  * and decision-making processes related to vaccination and infection risk.
  * 
+ * Agents join and leave the active sets of the phases (see {@link Population})
+ * as their state changes, so vaccinated and recovered agents are no longer
+ * visited by the phases they cannot act in.
+ * 
+ * The state is kept in a double buffer: neighbours always read the state an
+ * agent had at the start of the tick, while the agent itself sees its own
+ * latest state, so the phases run in parallel without data races.
+ * 
+ * Random numbers come from a counter-based generator keyed by the agent ID,
+ * the tick and the phase, so a run with a fixed randomSeed is reproducible
+ * whatever the amount of threads.
+ * 
+ * Since all of that lives in the {@link Population}, an agent is little more
+ * than its ID. With {@link #views(Population)} the agent manager keeps no agent
+ * objects and runs the phases on one view per worker, rebound to each ID.
+ * 
  * @author Bingkun Zhao
- * @date 06/8/2025
+ * @date 16/10/2026
  */
 public class Agent {
 
 	private int ID;
-	private State state;
-	List<Agent> agentNeighbors;
-
+	private final Population population;
 	
-    @ThreadScheduledField(phase = ThreadScheduledField.FIRST_PHASE)
-    private boolean toDecideVaccine;
-
-    @ThreadScheduledField(phase = ThreadScheduledField.SECOND_PHASE)
-    private boolean toUpdateState;
-	
-	public Agent(int ID) {
+	/**
+	 * @param ID         the ID of the agent, equal to its position in the agent manager
+	 * @param population the shared structures of the agents
+	 */
+	public Agent(int ID, Population population) {
 		this.ID = ID;
-		this.state = State.SUSCEPTIBLE;
-		this.agentNeighbors = new ArrayList<>();
+		this.population = population;
 		
-        this.toDecideVaccine = true; 
-        this.toUpdateState = true;
+		population.join(ID);
+	}
+
+	/**
+	 * Create a view that is not bound to any agent yet. The agents it is bound
+	 * to with {@link #setID(int)} must have joined the population.
+	 */
+	public Agent(Population population) {
+		this.ID = -1;
+		this.population = population;
+	}
+
+	/**
+	 * Return the binder of the views of a population, for
+	 * {@link multiThreads.AgentManager#useViews(int, ViewBinder)}.
+	 */
+	public static ViewBinder<Agent> views(Population population) {
+		return new ViewBinder<Agent>() {
+			@Override
+			public Agent newView() {
+				return new Agent(population);
+			}
+
+			@Override
+			public void bind(Agent view, int index) {
+				view.setID(index);
+			}
+		};
 	}
 	
 	
 	
-    @ThreadScheduledMethod(phase = ThreadScheduledMethod.FIRST_PHASE)
+    @ThreadScheduledMethod(phase = ThreadScheduledMethod.FIRST_PHASE, access = Access.SELF)
     public void decideVaccination() {
 
-        if (state == State.SUSCEPTIBLE) {
+        if (getOwnState() == State.SUSCEPTIBLE) {
             double vaccinatedProb = 0.1;
-            if (Math.random() < vaccinatedProb) {
+            if (nextRandom(ThreadScheduledMethod.FIRST_PHASE) < vaccinatedProb) {
                 setState(State.VACCINATED); 
                 
-                toDecideVaccine = false;
-                toUpdateState = true;
+                population.getToDecideVaccine().deactivate(ID);
+                if (population.isPushInfection()) {
+                    population.getToUpdateState().activate(ID); // Idle susceptible agents must still wane.
+                }
             }
         }
     }
 	
     
-    @ThreadScheduledMethod(phase = ThreadScheduledMethod.SECOND_PHASE)
+    // Neighbour states are read from the published buffer and the pressure was pushed last tick,
+    // so the phase only depends on its own agent within the tick and is fused with phase 0.
+    @ThreadScheduledMethod(phase = ThreadScheduledMethod.SECOND_PHASE, access = Access.SELF)
     public void updateDiseaseState() {
 
         double recoveryRate = 0.1;
         double vaccineWaningRate = 0.01;
+        // The pressure pushed last tick is taken in any state, so none is left for later ticks.
+        int pressure = population.isPushInfection() ? population.takePressure(ID) : 0;
         
-        switch (this.state) {
+        switch (getOwnState()) {
             case INFECTED:
-                if (Math.random() < recoveryRate) {
+                if (nextRandom(ThreadScheduledMethod.SECOND_PHASE) < recoveryRate) {
                     setState(State.RECOVERIED); 
+                    population.getToUpdateState().deactivate(ID); // Recovered agents never change again.
+                    population.getToSpread().deactivate(ID);
                 }
                 break;
             case SUSCEPTIBLE:
-                checkInfection(); // 检查是否被感染
+                if (population.isPushInfection()) {
+                    // The pressure is the amount of infected neighbours; without any, nothing can happen.
+                    if (pressure > 0) {
+                        tryInfection(pressure);
+                    }
+                    if (getOwnState() == State.SUSCEPTIBLE) {
+                        population.getToUpdateState().deactivate(ID); // Idle until pushed again.
+                    }
+                } else {
+                    checkInfection(); // 检查是否被感染
+                }
                 break;
             case VACCINATED:
-                if (Math.random() < vaccineWaningRate) {
+                if (nextRandom(ThreadScheduledMethod.SECOND_PHASE) < vaccineWaningRate) {
                     setState(State.SUSCEPTIBLE); 
                 }
                 break;
         }
-
-        toUpdateState = true;
     }
     
 	
 	public void checkInfection() {
 
+        // Walk the cached neighbour index; the published states are read directly by ID.
+        CsrGraph adjacency = population.getAdjacency();
+        ByteDoubleBuffer states = population.getStates();
+        byte infected = State.INFECTED.toByte();
         
-        Parameters params = RunEnvironment.getInstance().getParameters();
-        double infectionRate = (Double) params.getValue("infectionRate");
-        agentNeighbors = getAgentNeighbors();
+        int start = adjacency.getStart(ID);
+        int end = adjacency.getEnd(ID);
+        AgentManager<Agent> agentManager = population.getAgentManager();
         
         int infectedNeighbors = 0;
-        for (Agent neighbor : agentNeighbors) {
-            if (neighbor.getState() == State.INFECTED) {
-                infectedNeighbors++;
+        if (end - start > agentManager.getScanSplitSize()) {
+            // A hub: with work stealing, idle workers share the scan.
+            infectedNeighbors = agentManager.countMatches(start, end,
+                k -> states.get(adjacency.getTarget(k)) == infected);
+        } else {
+            for (int k = start; k < end; k++) {
+                if (states.get(adjacency.getTarget(k)) == infected) {
+                    infectedNeighbors++;
+                }
             }
         }
 
+        tryInfection(infectedNeighbors);
+        
+	}
+
+	/**
+	 * Get infected with the probability given by an amount of infected neighbours.
+	 */
+	private void tryInfection(int infectedNeighbors) {
+
         // Calculate actual infection probability: 1 - product of (1 - base rate) for each infected neighbor
-        double actualInfectionRate =  1 - Math.pow(1 - infectionRate, infectedNeighbors);
+        double actualInfectionRate = population.getParameters().getInfectionProbability(infectedNeighbors);
 
-        if (Math.random() < actualInfectionRate) {
-        	state = State.INFECTED;
+        if (nextRandom(ThreadScheduledMethod.SECOND_PHASE) < actualInfectionRate) {
+        	setState(State.INFECTED);
+        	population.getToDecideVaccine().deactivate(ID); // Infected agents can no longer vaccinate.
+        	if (population.isPushInfection()) {
+        		population.getToUpdateState().activate(ID); // Stays until recovery.
+        		population.getToSpread().activate(ID);
+        	}
         }
         
-        
 	}
 
+    /**
+     * Push infection pressure to the susceptible neighbours for the next tick.
+     * Only infected agents are in this phase, and only with push infection.
+     */
+    @ThreadScheduledMethod(phase = ThreadScheduledMethod.THIRD_PHASE, access = Access.WRITES_NEIGHBORS)
+    public void spreadInfection() {
+        population.pushFrom(ID);
+    }
+
 
 	public int getID() {
 		return ID;
@@ -116,14 +204,67 @@ public class Agent {
 		ID = iD;
 	}
 
+	/**
+	 * Return the ID of the node of the agent in the data file, which differs
+	 * from the agent ID when node IDs are remapped.
+	 */
+	public int getOriginalID() {
+		IdMapping idMapping = population.getIdMapping();
+		return idMapping == null ? ID : idMapping.getOriginalId(ID);
+	}
+
+	/**
+	 * Return the state of the agent at the start of the current tick.
+	 * This is the state other agents and the monitor see.
+	 */
 	public State getState() {
-		return state;
+		return State.of(population.getStates().get(ID));
 	}
 
+	/**
+	 * Set the state of the agent for the next tick.
+	 * Every state change goes through here, so the state counters stay exact.
+	 */
 	public void setState(State state) {
-		this.state = state;
+		State old = getOwnState();
+		if (old != state) {
+			population.getStates().set(ID, state.toByte());
+			population.getCounters().transition(old, state);
+		}
 	}
 
+	/**
+	 * Set the state of the agent before the simulation starts, visible at once to every agent.
+	 */
+	public void initState(State state) {
+		State old = getOwnState();
+		population.getStates().reset(ID, state.toByte());
+		if (old != state) {
+			population.getCounters().transition(old, state);
+		}
+	}
+
+	/**
+	 * Return the random number of the agent for a phase of the current tick.
+	 * Each phase draws at most one number per agent.
+	 */
+	private double nextRandom(int phase) {
+		return population.getRandom().nextDouble(ID, phase, 0);
+	}
+
+	/**
+	 * Return the latest state of the agent, including the changes of earlier phases of this tick.
+	 * Only the agent itself may read it during the phases.
+	 */
+	private State getOwnState() {
+		return State.of(population.getStates().getNext(ID));
+	}
+
+	/**
+	 * Return the neighbours of the agent from the network projection.
+	 * This allocates a new list on each call; the phases use the neighbour index instead.
+	 * Views have no network projection.
+	 */
 	public List<Agent> getAgentNeighbors() {
 	    @SuppressWarnings("unchecked")
 	    Context<Object> context = ContextUtils.getContext(this);
@@ -142,9 +283,5 @@ public class Agent {
 		return agentNeighbors;
 	}
 
-	public void setAgentNeighbors(List<Agent> agentNeighbors) {
-		this.agentNeighbors = agentNeighbors;
-	}
-	
 	
 }
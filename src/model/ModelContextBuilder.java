@@ -1,10 +1,15 @@
 /* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
 package model;
 
-import java.util.HashMap;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
 import multiThreads.AgentManager;
+import networkCreator.CsrNetwork;
 import networkCreator.CustomizedNetworkGenerator;
+import networkCreator.NeighborIndex;
+import networkDataLoader.CsrGraph;
 import networkDataLoader.DataLoader;
 import repast.simphony.context.Context;
 import repast.simphony.context.Contexts;
@@ -12,7 +17,8 @@ import repast.simphony.context.space.graph.NetworkBuilder;
 import repast.simphony.context.space.graph.NetworkGenerator;
 import repast.simphony.dataLoader.ContextBuilder;
 import repast.simphony.engine.environment.RunEnvironment;
-import repast.simphony.parameter.Parameters;
+import repast.simphony.engine.schedule.ScheduleParameters;
+import repast.simphony.random.RandomHelper;
 import repast.simphony.space.graph.Network;
 
 public class ModelContextBuilder implements ContextBuilder<Object> {
@@ -21,12 +27,14 @@ public class ModelContextBuilder implements ContextBuilder<Object> {
     public Context<Object> build(Context<Object> context) {
 
         // Get the parameters of the model.
-        Parameters para = RunEnvironment.getInstance().getParameters();
-        int numThread = para.getInteger("numThread");
+        // The values are frozen once per run, so agents never look them up on the hot path.
+        ModelParameters parameters = ModelParameters.from(RunEnvironment.getInstance().getParameters());
+        int numThread = parameters.getNumThread();
         
         // Read the data of the network.
-        DataLoader dataLoader = new DataLoader("./data/soc-Epinions1.txt");
-        HashMap<Integer, Set<Integer>> edgeMap = dataLoader.getEdgeMap();
+        DataLoader dataLoader = new DataLoader("./data/soc-Epinions1.txt", numThread, true,
+            parameters.isRemapNodeIds(), parameters.getNodeOrdering());
+        CsrGraph graph = dataLoader.getGraph();
         int numAgent = dataLoader.getNumNodes();
         
         // Create the contexts of the model.
@@ -35,37 +43,117 @@ public class ModelContextBuilder implements ContextBuilder<Object> {
         // Create the objects of the model.
         AgentManager<Agent> agentManager = new AgentManager<>(Agent.class, numAgent, numThread);
         context.add(agentManager);
+        agentManager.setRandomSeed(parameters.getRandomSeed());
+        agentManager.setScheduling(parameters.getScheduling());
+        Population population = new Population(agentManager, numAgent, parameters);
+        population.setIdMapping(dataLoader.getIdMapping());
 
         
-        Monitor monitor = new Monitor(agentContext);
+        Monitor monitor = new Monitor(population.getCounters());
+        if (parameters.isTrackInfectedContacts()) {
+            monitor.trackInfectedContacts(population, agentManager);
+        }
         context.add(monitor);
 
+        int numInfected = (int) (numAgent * 0.01);
+
+        if (parameters.isArrayPopulation()) {
+
+            // No agent objects: the agents are the arrays of the population, seen through
+            // one view per worker, and their neighbours come straight from the graph.
+            for (int j = 0; j < numAgent; j++) {
+                population.join(j);
+            }
+            agentManager.useViews(numAgent, Agent.views(population));
+            // Both ends of each edge, like the network of the object agents.
+            population.setGraph(graph.toUndirected());
+
+            Agent view = new Agent(population);
+            BitSet infected = randomSubset(numInfected, numAgent);
+            for (int id = infected.nextSetBit(0); id >= 0; id = infected.nextSetBit(id + 1)) {
+                view.setID(id);
+                view.initState(State.INFECTED);
+                population.getToDecideVaccine().deactivate(id);
+                population.startSpreading(id);
+            }
+
+            prepareRun(parameters, agentManager, population);
+            return context;
+
+        }
+
+        Agent[] agentArray = new Agent[numAgent];
         for (int j = 0; j < numAgent; j++) {
 
-            Agent agent = new Agent(j);
+            Agent agent = new Agent(j, population);
             agentContext.add(agent);
             agentManager.addAgent(agent);
+            agentArray[j] = agent;
 
         }
 
-        int numInfected = (int) (numAgent * 0.01);
-        Iterable<Agent> agents = agentContext.getRandomObjects(Agent.class, numInfected);
-        for (Agent agent : agents) {
-        	agent.setState(State.INFECTED);
+        List<Agent> infected = new ArrayList<>(numInfected);
+        for (Agent agent : agentContext.getRandomObjects(Agent.class, numInfected)) {
+        	agent.initState(State.INFECTED);
+        	population.getToDecideVaccine().deactivate(agent.getID());
+        	infected.add(agent);
         }
         
         // Generate a network of agents.
-        NetworkBuilder<Agent> netBuilder =
-            new NetworkBuilder<>("agentNetwork", agentContext, false);
-        NetworkGenerator<Agent> gen = new CustomizedNetworkGenerator<>(edgeMap, numAgent, false);
-        netBuilder.setGenerator(gen);
-        @SuppressWarnings("unused")
-		Network<Agent> agentNetwork = netBuilder.buildNetwork();
+        if (parameters.isCsrNetwork()) {
+            // A read-only projection over the arrays of the graph, without JUNG edges. Its
+            // topology never changes, so the agents share its neighbours instead of a copy.
+            CsrNetwork<Agent> agentNetwork = new CsrNetwork<>("agentNetwork", graph, agentArray, Agent::getID, false);
+            agentContext.addProjection(agentNetwork);
+            population.setGraph(agentNetwork.getGraph());
+        } else {
+            NetworkBuilder<Agent> netBuilder =
+                new NetworkBuilder<>("agentNetwork", agentContext, false);
+            NetworkGenerator<Agent> gen = new CustomizedNetworkGenerator<>(graph, numAgent, false, Agent::getID);
+            netBuilder.setGenerator(gen);
+            Network<Agent> agentNetwork = netBuilder.buildNetwork();
+            // Index the neighbours once; the index is rebuilt only if the network changes.
+            population.setNeighborIndex(new NeighborIndex<>(agentNetwork, Agent::getID, numAgent));
+        }
+        for (Agent agent : infected) {
+            population.startSpreading(agent.getID());
+        }
         
-        // Set the ending time of one simulation.
-        RunEnvironment.getInstance().endAt((Integer) para.getValue("endTime"));
+        prepareRun(parameters, agentManager, population);
         return context;
 
     }
 
+    private static void prepareRun(ModelParameters parameters, AgentManager<Agent> agentManager,
+                                    Population population) {
+
+        // The cost of an agent follows its neighbour scan; used to split the phases.
+        CsrGraph adjacency = population.getAdjacency();
+        agentManager.setCostEstimator(id -> adjacency.getDegree(id) + 1);
+
+        // Set the ending time of one simulation.
+        RunEnvironment.getInstance().endAt(parameters.getEndTime());
+        // Report how evenly the workers were loaded, then stop them when the run ends.
+        RunEnvironment.getInstance().getCurrentSchedule().schedule(
+            ScheduleParameters.createAtEnd(ScheduleParameters.FIRST_PRIORITY), agentManager, "printBusyReport");
+        RunEnvironment.getInstance().getCurrentSchedule().schedule(
+            ScheduleParameters.createAtEnd(ScheduleParameters.LAST_PRIORITY), agentManager, "shutdown");
+
+    }
+
+    /**
+     * Pick count distinct IDs from 0 to bound - 1 uniformly (Floyd's algorithm),
+     * with the random numbers of Repast.
+     */
+    private static BitSet randomSubset(int count, int bound) {
+
+        BitSet subset = new BitSet(bound);
+        for (int j = bound - count; j < bound; j++) {
+            int id = RandomHelper.nextIntFromTo(0, j);
+            subset.set(subset.get(id) ? j : id);
+        }
+        return subset;
+
+    }
+
 }
\ No newline at end of file
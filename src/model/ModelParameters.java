@@ -0,0 +1,160 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package model;
+
+import multiThreads.Scheduling;
+import networkDataLoader.NodeOrdering;
+import repast.simphony.parameter.Parameters;
+
+/**
+ * Immutable snapshot of the model parameters (parameters.xml), taken once per run.
+ * Agents read the primitive fields of this object instead of looking the values
+ * up in the Repast parameters on every call.
+ *
+ * @author Bingkun Zhao
+ * @date 16/10/2026
+ */
+public final class ModelParameters {
+
+	/** Amount of infected neighbours for which the escape probability is precomputed. */
+	private static final int ESCAPE_TABLE_SIZE = 256;
+
+	private final double infectionRate;
+	private final int endTime;
+	private final int numThread;
+	private final long randomSeed;
+	private final boolean remapNodeIds;
+	private final boolean csrNetwork;
+	private final boolean arrayPopulation;
+	private final NodeOrdering nodeOrdering;
+	private final Scheduling scheduling;
+	private final boolean pushInfection;
+	private final boolean trackInfectedContacts;
+
+	/** escapeProbability[k] = (1 - infectionRate)^k, the chance to stay healthy with k infected neighbours. */
+	private final double[] escapeProbability;
+
+	public ModelParameters(double infectionRate, int endTime, int numThread, long randomSeed,
+			boolean remapNodeIds, boolean csrNetwork, boolean arrayPopulation, NodeOrdering nodeOrdering,
+			Scheduling scheduling, boolean pushInfection, boolean trackInfectedContacts) {
+		this.infectionRate = infectionRate;
+		this.endTime = endTime;
+		this.numThread = numThread;
+		this.randomSeed = randomSeed;
+		this.remapNodeIds = remapNodeIds;
+		this.csrNetwork = csrNetwork;
+		this.arrayPopulation = arrayPopulation;
+		this.nodeOrdering = nodeOrdering;
+		this.scheduling = scheduling;
+		this.pushInfection = pushInfection;
+		this.trackInfectedContacts = trackInfectedContacts;
+
+		this.escapeProbability = new double[ESCAPE_TABLE_SIZE];
+		for (int k = 0; k < ESCAPE_TABLE_SIZE; k++) {
+			escapeProbability[k] = Math.pow(1 - infectionRate, k);
+		}
+	}
+
+	/**
+	 * Read the current values of the Repast parameters.
+	 */
+	public static ModelParameters from(Parameters para) {
+		return new ModelParameters(
+			para.getDouble("infectionRate"),
+			para.getInteger("endTime"),
+			para.getInteger("numThread"),
+			para.getInteger("randomSeed"),
+			para.getBoolean("remapNodeIds"),
+			para.getBoolean("csrNetwork"),
+			para.getBoolean("arrayPopulation"),
+			NodeOrdering.valueOf(para.getString("nodeOrdering").trim().toUpperCase()),
+			Scheduling.valueOf(para.getString("scheduling").trim().toUpperCase()),
+			para.getBoolean("pushInfection"),
+			para.getBoolean("trackInfectedContacts"));
+	}
+
+	/**
+	 * Return the probability of being infected by some infected neighbours:
+	 * 1 - product of (1 - base rate) for each infected neighbour.
+	 */
+	public double getInfectionProbability(int infectedNeighbors) {
+		if (infectedNeighbors < ESCAPE_TABLE_SIZE) {
+			return 1 - escapeProbability[infectedNeighbors];
+		}
+		return 1 - Math.pow(1 - infectionRate, infectedNeighbors);
+	}
+
+	public double getInfectionRate() {
+		return infectionRate;
+	}
+
+	public int getEndTime() {
+		return endTime;
+	}
+
+	public int getNumThread() {
+		return numThread;
+	}
+
+	public long getRandomSeed() {
+		return randomSeed;
+	}
+
+	/**
+	 * Whether the nodes of the data file get dense IDs, so that one agent is created
+	 * per node that appears in an edge instead of one per ID up to the largest.
+	 */
+	public boolean isRemapNodeIds() {
+		return remapNodeIds;
+	}
+
+	/**
+	 * Whether the agent network is a read-only projection backed by the arrays of the
+	 * graph instead of a JUNG network built by a NetworkBuilder.
+	 */
+	public boolean isCsrNetwork() {
+		return csrNetwork;
+	}
+
+	/**
+	 * Whether the agents are kept only as arrays in the population and run as
+	 * flyweight views, without agent objects, a context or a network projection.
+	 */
+	public boolean isArrayPopulation() {
+		return arrayPopulation;
+	}
+
+	/**
+	 * The order in which the nodes of the data file are numbered as agents:
+	 * NONE, BFS, RCM or DEGREE. The other orders give neighbours close IDs.
+	 */
+	public NodeOrdering getNodeOrdering() {
+		return nodeOrdering;
+	}
+
+	/**
+	 * How the agents are shared among the threads: DYNAMIC chunks, STATIC
+	 * ranges kept by the same thread across phases and ticks, or WORK_STEALING
+	 * pieces split by the degree of the agents.
+	 */
+	public Scheduling getScheduling() {
+		return scheduling;
+	}
+
+	/**
+	 * Whether infected agents push infection pressure to their susceptible
+	 * neighbours, so only the agents under pressure check for infection, instead
+	 * of every susceptible agent scanning its neighbours each tick.
+	 */
+	public boolean isPushInfection() {
+		return pushInfection;
+	}
+
+	/**
+	 * Whether the monitor reports the contacts of infected agents each tick. It
+	 * costs a pass over every agent at the end of each tick, so it is off by default.
+	 */
+	public boolean isTrackInfectedContacts() {
+		return trackInfectedContacts;
+	}
+
+}
@@ -1,10 +1,18 @@
 package model;
 
-import repast.simphony.context.Context;
+import multiThreads.AgentManager;
+import multiThreads.Reduction;
 import repast.simphony.engine.schedule.ScheduledMethod;
-import repast.simphony.util.collections.IndexedIterable;
 
 /**
+* The monitor reports the amount of agents in each state once per tick.
+* The amounts come from the state counters, which every state transition
+* updates, so collecting them no longer walks the population.
+*
+* On request (the trackInfectedContacts parameter) it also reports the amount
+* of contacts of infected agents, i.e. the edges along which the disease can
+* spread in the next tick. That metric needs every agent, so it is a reduction
+* computed by the workers of the agent manager at the end of each tick.
 *
 * @author  Bingkun Zhao
 * @data   06/8/2025
@@ -12,49 +20,42 @@ import repast.simphony.util.collections.IndexedIterable;
 
 public class Monitor {
 	
-    private Context<Agent> context;
+    private StateCounters counters;
     
     private int infectedCount;
     private int vaccinatedCount;
     private int recoveredCount;
     private int susceptibleCount;
+    private long infectedContacts;
     
-    public Monitor(Context<Agent> context) {
-        this.context = context;
+    public Monitor(StateCounters counters) {
+        this.counters = counters;
+    }
+
+    /**
+     * Report the contacts of infected agents from now on. Call it before the first tick.
+     */
+    public void trackInfectedContacts(Population population, AgentManager<Agent> agentManager) {
+        agentManager.registerReduction(Reduction.<Agent, long[]>of(
+            () -> new long[1],
+            (partial, agent) -> {
+                if (agent.getState() == State.INFECTED) {
+                    partial[0] += population.getAdjacency().getDegree(agent.getID());
+                }
+            },
+            (into, partial) -> into[0] += partial[0],
+            result -> infectedContacts = result[0]));
     }
     
     
 	@ScheduledMethod(start = 1, interval = 1, shuffle = true, priority = 1)
     public void collectData() {
 		
-        infectedCount = 0;
-        vaccinatedCount = 0;
-        recoveredCount = 0;
-        susceptibleCount = 0;
-        
-        IndexedIterable<Agent> agents = context.getObjects(Agent.class);
-        
-        for (Object obj : agents) {
-            if (obj instanceof Agent) {
-                Agent agent = (Agent) obj;
-                
-                // 统计疾病状态
-                switch (agent.getState()) {
-                    case SUSCEPTIBLE:
-                        susceptibleCount++;
-                        break;
-                    case INFECTED:
-                        infectedCount++;
-                        break;
-                    case VACCINATED:
-                        vaccinatedCount++;
-                        break;
-                    case RECOVERIED:
-                        recoveredCount++;
-                        break;
-                }
-            }
-        }
+		// Read the counters between ticks, when they match the published states.
+        infectedCount = counters.get(State.INFECTED);
+        vaccinatedCount = counters.get(State.VACCINATED);
+        recoveredCount = counters.get(State.RECOVERIED);
+        susceptibleCount = counters.get(State.SUSCEPTIBLE);
 	}
 	
 	public int getInfectedCount() {
@@ -88,5 +89,16 @@ public class Monitor {
 	public void setSusceptibleCount(int susceptibleCount) {
 		this.susceptibleCount = susceptibleCount;
 	}
+
+	/**
+	 * Return the contacts of infected agents, or 0 unless they are tracked.
+	 */
+	public long getInfectedContacts() {
+		return infectedContacts;
+	}
+
+	public void setInfectedContacts(long infectedContacts) {
+		this.infectedContacts = infectedContacts;
+	}
 	
 }
@@ -0,0 +1,224 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package model;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import multiThreads.ActiveSet;
+import multiThreads.AgentManager;
+import multiThreads.ByteDoubleBuffer;
+import multiThreads.CounterRandom;
+import multiThreads.ThreadScheduledMethod;
+import networkCreator.NeighborIndex;
+import networkDataLoader.CsrGraph;
+import networkDataLoader.IdMapping;
+
+/**
+ * Structures shared by all agents of the disease transmission model.
+ * Agents are indexed by their ID, which is also their position in the
+ * {@link AgentManager}.
+ *
+ * Every per-agent field of the model lives here, in arrays and bitsets indexed
+ * by ID, so an {@link Agent} only holds its ID. This lets the model run without
+ * agent objects at all, on flyweight views (see {@link Agent#views(Population)}).
+ *
+ * With push infection (see {@link ModelParameters#isPushInfection()}), infected
+ * agents add pressure to their susceptible neighbours at the end of each tick
+ * (phase 2), and only the agents under pressure check for infection in the next
+ * tick, so the cost of spreading follows the edges of the infected agents
+ * instead of the edges of the whole graph.
+ *
+ * @author Bingkun Zhao
+ * @date 16/10/2026
+ */
+public class Population {
+
+	/** Agents that still decide whether to vaccinate (phase 0). */
+	private final ActiveSet toDecideVaccine;
+
+	/** 
+	 * Agents whose disease state can still change (phase 1). With push infection,
+	 * susceptible agents are only in it while they are under pressure.
+	 */
+	private final ActiveSet toUpdateState;
+
+	/** Infected agents, which push pressure to their neighbours with push infection (phase 2). */
+	private final ActiveSet toSpread;
+
+	/** 
+	 * The amount of infected neighbours of each agent, pushed in phase 2 and taken
+	 * in phase 1 of the next tick, or null with pull infection.
+	 */
+	private final AtomicIntegerArray pressure;
+
+	/** 
+	 * The disease state of every agent, double-buffered: agents read the states of
+	 * the previous tick and write the states of the next one.
+	 */
+	private final ByteDoubleBuffer states;
+
+	/** The amount of agents in each state, updated by every state transition. */
+	private final StateCounters counters;
+
+	/** The random numbers of the agents, keyed by seed, tick, agent ID, phase and draw. */
+	private final CounterRandom random;
+
+	/** The parameters of the run. */
+	private final ModelParameters parameters;
+
+	/** The agent manager that runs the phases. */
+	private final AgentManager<Agent> agentManager;
+
+	/** The IDs of the agents in the data file, or null if they are the same as the agent IDs. */
+	private IdMapping idMapping;
+
+	/** The neighbours of every agent by ID, set once the network is built. */
+	private NeighborIndex<Agent> neighborIndex;
+
+	/** The neighbours of every agent by ID when there is no network projection. */
+	private CsrGraph graph;
+
+	/**
+	 * Call it after the random seed of the agent manager has been set.
+	 */
+	public Population(AgentManager<Agent> agentManager, int numAgent, ModelParameters parameters) {
+		this.toDecideVaccine = agentManager.useActiveSet(ThreadScheduledMethod.FIRST_PHASE);
+		this.toUpdateState = agentManager.useActiveSet(ThreadScheduledMethod.SECOND_PHASE);
+		this.toSpread = agentManager.useActiveSet(ThreadScheduledMethod.THIRD_PHASE);
+		this.pressure = parameters.isPushInfection() ? new AtomicIntegerArray(numAgent) : null;
+		this.states = new ByteDoubleBuffer(numAgent);
+		agentManager.registerBuffer(states);
+		this.counters = new StateCounters();
+		this.random = agentManager.getRandom();
+		this.parameters = parameters;
+		this.agentManager = agentManager;
+	}
+
+	/**
+	 * Add a susceptible agent: set its state and let it take part in every phase.
+	 */
+	public void join(int ID) {
+		states.reset(ID, State.SUSCEPTIBLE.toByte());
+		counters.increment(State.SUSCEPTIBLE);
+		toDecideVaccine.activate(ID);
+		toUpdateState.activate(ID);
+	}
+
+	public ActiveSet getToDecideVaccine() {
+		return toDecideVaccine;
+	}
+
+	public ActiveSet getToUpdateState() {
+		return toUpdateState;
+	}
+
+	public ActiveSet getToSpread() {
+		return toSpread;
+	}
+
+	/**
+	 * Whether infected agents push pressure to their neighbours instead of
+	 * susceptible agents scanning theirs.
+	 */
+	public boolean isPushInfection() {
+		return pressure != null;
+	}
+
+	/**
+	 * Add one unit of pressure to each susceptible neighbour of an infected agent,
+	 * for the next tick, and let the neighbours check for infection in it.
+	 * Called in phase 2, when no state changes any more, and once for the initially
+	 * infected agents before the first tick.
+	 */
+	public void pushFrom(int ID) {
+		CsrGraph adjacency = getAdjacency();
+		byte susceptible = State.SUSCEPTIBLE.toByte();
+		for (int k = adjacency.getStart(ID), end = adjacency.getEnd(ID); k < end; k++) {
+			int neighbor = adjacency.getTarget(k);
+			if (states.getNext(neighbor) == susceptible) {
+				pressure.incrementAndGet(neighbor);
+				toUpdateState.activate(neighbor);
+			}
+		}
+	}
+
+	/**
+	 * Let an initially infected agent spread with push infection, once the
+	 * adjacency is set: it joins phase 2 and pushes its first pressure now.
+	 */
+	public void startSpreading(int ID) {
+		if (pressure != null) {
+			toSpread.activate(ID);
+			pushFrom(ID);
+		}
+	}
+
+	/**
+	 * Return the pressure on an agent and clear it. Only the agent itself calls it, in phase 1.
+	 */
+	public int takePressure(int ID) {
+		int value = pressure.get(ID);
+		if (value != 0) {
+			pressure.set(ID, 0);
+		}
+		return value;
+	}
+
+	public ByteDoubleBuffer getStates() {
+		return states;
+	}
+
+	public StateCounters getCounters() {
+		return counters;
+	}
+
+	public CounterRandom getRandom() {
+		return random;
+	}
+
+	public ModelParameters getParameters() {
+		return parameters;
+	}
+
+	public AgentManager<Agent> getAgentManager() {
+		return agentManager;
+	}
+
+	public IdMapping getIdMapping() {
+		return idMapping;
+	}
+
+	/**
+	 * Set the translation between agent IDs and the node IDs of the data file.
+	 */
+	public void setIdMapping(IdMapping idMapping) {
+		this.idMapping = idMapping;
+	}
+
+	public NeighborIndex<Agent> getNeighborIndex() {
+		return neighborIndex;
+	}
+
+	/**
+	 * Set the neighbour index. Call it after the network has been built, before the first tick.
+	 */
+	public void setNeighborIndex(NeighborIndex<Agent> neighborIndex) {
+		this.neighborIndex = neighborIndex;
+	}
+
+	/**
+	 * Set the neighbours of the agents when they have no network projection, or
+	 * one that cannot change, such as a {@link networkCreator.CsrNetwork}.
+	 */
+	public void setGraph(CsrGraph graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * Return the neighbours of every agent by ID: the neighbour index of the
+	 * network projection if there is one, otherwise the graph of the data file.
+	 */
+	public CsrGraph getAdjacency() {
+		return neighborIndex != null ? neighborIndex.current() : graph;
+	}
+
+}
@@ -8,6 +8,22 @@ public enum State {
 	
 	INFECTED,
 	
-	RECOVERIED,
+	RECOVERIED;
+	
+	private static final State[] VALUES = values();
+	
+	/**
+	 * Return the state stored as a byte in a {@link multiThreads.ByteDoubleBuffer}.
+	 * 
+	 * @param ordinal the ordinal of the state
+	 * @return the state
+	 */
+	public static State of(byte ordinal) {
+		return VALUES[ordinal];
+	}
+	
+	public byte toByte() {
+		return (byte) ordinal();
+	}
 	
 }
@@ -0,0 +1,52 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package model;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The amount of agents in each disease state, kept up to date by the state
+ * transitions instead of being recounted every tick.
+ *
+ * Each state has a {@link LongAdder}, which spreads concurrent updates over
+ * striped cells, so the workers of a phase never contend on one counter. The
+ * sum is only exact between phases: the monitor reads it after the tick
+ * barrier, when it equals the states every agent has published.
+ *
+ * @author Bingkun Zhao
+ * @date 16/10/2026
+ */
+public class StateCounters {
+
+	private final LongAdder[] counters;
+
+	public StateCounters() {
+		State[] states = State.values();
+		counters = new LongAdder[states.length];
+		for (int i = 0; i < states.length; i++) {
+			counters[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Count a new agent in a state.
+	 */
+	public void increment(State state) {
+		counters[state.ordinal()].increment();
+	}
+
+	/**
+	 * Move an agent from one state to another.
+	 */
+	public void transition(State from, State to) {
+		counters[from.ordinal()].decrement();
+		counters[to.ordinal()].increment();
+	}
+
+	/**
+	 * Return the amount of agents in a state. Only exact while no phase is running.
+	 */
+	public int get(State state) {
+		return (int) counters[state.ordinal()].sum();
+	}
+
+}
@@ -0,0 +1,41 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package multiThreads;
+
+/**
+ * Access - What a thread scheduled method touches besides its own agent
+ *
+ * <p>Declared with {@link ThreadScheduledMethod#access()}. Consecutive phases
+ * whose methods all declare {@link #SELF} are fused into one pass over the agents
+ * (see {@link AgentManager}): each agent runs them back to back, and the barriers
+ * between them are dropped. Any other access keeps its phase apart, so the
+ * neighbour reads of a phase see every write of the phases before it.</p>
+ *
+ * @author Bingkun Zhao
+ *
+ * @time Last update time: 16/10/2026
+ */
+public enum Access {
+
+    /**
+     * The method reads and writes only the state of its own agent. Reading the
+     * neighbours through a {@link DoubleBuffer} also counts, since it only sees the
+     * values of the previous tick, which no phase of this tick changes.
+     */
+    SELF,
+
+    /**
+     * The method reads state of other agents that the phases of the same tick write.
+     */
+    READS_NEIGHBORS,
+
+    /**
+     * The method writes state of other agents, e.g. counters or active sets.
+     */
+    WRITES_NEIGHBORS,
+
+    /**
+     * Nothing is declared, so the phase is assumed to touch anything. The default.
+     */
+    UNDECLARED
+
+}
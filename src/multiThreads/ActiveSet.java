@@ -0,0 +1,142 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package multiThreads;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * ActiveSet - The agents that take part in one phase
+ *
+ * <p>An active set is a concurrent bitset indexed by the position of the agent in
+ * the {@link AgentManager} (the order in which the agents were added). A phase
+ * that uses an active set visits only the agents whose bit is set, 64 agents per
+ * word, so inactive agents are never touched. Agents flag themselves in and out
+ * with {@link #activate(int)} and {@link #deactivate(int)}, which are lock-free
+ * and may be called from any phase by any worker.</p>
+ *
+ * <p>A change made while the phase of the set is running takes effect in that
+ * phase only if the worker has not reached the word of the agent yet. Changes
+ * made in other phases always take effect the next time the phase runs.</p>
+ *
+ * @author Bingkun Zhao
+ *
+ * @time Last update time: 16/10/2026
+ */
+public final class ActiveSet {
+
+    /** The bits of the set, 64 agents per word. Replaced only while the simulation is set up. */
+    private volatile AtomicLongArray words;
+
+    /**
+     * Construct an empty active set.
+     *
+     * @param capacity the amount of agents expected
+     */
+    ActiveSet(int capacity) {
+        words = new AtomicLongArray(wordCount(capacity));
+    }
+
+    /**
+     * Add an agent to the set.
+     *
+     * @param index the position of the agent in the agent manager
+     * @throws IndexOutOfBoundsException if the index is not the one of a managed agent
+     */
+    public void activate(int index) {
+
+        AtomicLongArray w = words;
+        int i = index >>> 6;
+        long mask = 1L << index; // The shift only uses the low six bits of index.
+
+        long old = w.get(i);
+        while ((old & mask) == 0 && !w.compareAndSet(i, old, old | mask)) { // No write if already set.
+            old = w.get(i);
+        }
+
+    }
+
+    /**
+     * Remove an agent from the set.
+     *
+     * @param index the position of the agent in the agent manager
+     * @throws IndexOutOfBoundsException if the index is not the one of a managed agent
+     */
+    public void deactivate(int index) {
+
+        AtomicLongArray w = words;
+        int i = index >>> 6;
+        long mask = 1L << index;
+
+        long old = w.get(i);
+        while ((old & mask) != 0 && !w.compareAndSet(i, old, old & ~mask)) {
+            old = w.get(i);
+        }
+
+    }
+
+    /**
+     * Check whether an agent is in the set.
+     *
+     * @param  index the position of the agent in the agent manager
+     * @return       true if the agent is active
+     */
+    public boolean isActive(int index) {
+        return (words.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    /**
+     * Count the agents in the set. This walks the whole set and is meant for
+     * statistics, not for the phases.
+     *
+     * @return the amount of active agents
+     */
+    public int size() {
+
+        AtomicLongArray w = words;
+        int count = 0;
+        for (int i = 0; i < w.length(); i++) {
+            count += Long.bitCount(w.get(i));
+        }
+        return count;
+
+    }
+
+    /**
+     * Return one word of the set.
+     *
+     * @param  i the index of the word
+     * @return   the bits of the agents from 64 * i to 64 * i + 63
+     */
+    long word(int i) {
+        return words.get(i);
+    }
+
+    /**
+     * Make room for more agents. Only called while agents are added, never during a phase.
+     *
+     * @param capacity the amount of agents
+     */
+    void ensureCapacity(int capacity) {
+
+        AtomicLongArray w = words;
+        int needed = wordCount(capacity);
+        if (needed <= w.length()) return;
+
+        AtomicLongArray grown = new AtomicLongArray(Math.max(needed, w.length() * 2));
+        for (int i = 0; i < w.length(); i++) {
+            grown.set(i, w.get(i));
+        }
+        words = grown;
+
+    }
+
+    /**
+     * Return the amount of words needed for some agents.
+     *
+     * @param  capacity the amount of agents
+     * @return          the amount of words
+     */
+    private static int wordCount(int capacity) {
+        return (Math.max(capacity, 0) + 63) >>> 6;
+    }
+
+}
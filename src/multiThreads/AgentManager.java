@@ -1,13 +1,11 @@
 /* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
 package multiThreads;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+import java.util.function.IntToLongFunction;
 
 import repast.simphony.engine.schedule.ScheduledMethod;
 
@@ -18,6 +16,71 @@ import repast.simphony.engine.schedule.ScheduledMethod;
  * using a thread pool. It supports phased execution where different methods
  * are executed in different simulation phases based on annotated fields and methods.</p>
  * 
+ * <p>The phases are built from the annotations by a {@link PhaseRegistry}. There
+ * may be any number of phases, several methods per phase (run in one pass over
+ * the agents) and phases without a guard field (run by every agent).</p>
+ * 
+ * <p>Instead of a guard field, a phase can keep an {@link ActiveSet} (see
+ * {@link #useActiveSet(int)}). Agents then flag themselves in and out of the
+ * phase, and the phase only visits the flagged agents, so its cost follows the
+ * activity rather than the size of the population.</p>
+ * 
+ * <p>State that agents read from their neighbours can be kept in a
+ * {@link DoubleBuffer} registered with {@link #registerBuffer(DoubleBuffer)}.
+ * Reads then see the values of the previous tick and writes go to the next
+ * one; the buffers are swapped at the tick barrier after the last phase.</p>
+ * 
+ * <p>Instead of one object per agent, the manager can keep only the amount of
+ * agents and hand each worker a flyweight view (see {@link #useViews(int, ViewBinder)}).
+ * The model then keeps the agent fields in arrays indexed by position, which
+ * saves an object per agent and keeps the phases on sequential array reads.</p>
+ * 
+ * <p>Observers that aggregate over the agents register a {@link Reduction} with
+ * {@link #registerReduction(Reduction)}. The workers compute it at the tick
+ * barrier into per-worker partial results, which are merged once they are done,
+ * so collecting statistics scales with the workers instead of running alone
+ * after the phases.</p>
+ * 
+ * <p>Agents draw random numbers from {@link #getRandom()}, a counter-based
+ * generator keyed by the seed, the tick, the agent, the phase and the draw, so
+ * runs are reproducible and independent of the amount of threads.</p>
+ * 
+ * <p>The worker threads are created once in the constructor and reused by every
+ * phase of every tick. Phases are separated by a blocking barrier, and the workers
+ * are stopped by {@link #shutdown()} at the end of the run.</p>
+ * 
+ * <p>Within a phase the agents are dispatched in contiguous index ranges (chunks).
+ * A worker claims one chunk at a time and loops over it without allocating
+ * anything per agent. The chunk size is set by {@link #setGrainSize(int)} or
+ * chosen automatically from the amount of agents and threads.</p>
+ * 
+ * <p>With {@link Scheduling#STATIC} (see {@link #setScheduling(Scheduling)}) each
+ * worker owns a fixed range of agents instead, in every phase and every tick, so
+ * the caches of its core stay warm. The busy time of each worker is measured in
+ * every tick, and the ranges are moved in proportion to it only when the slowest
+ * worker exceeds the mean by more than the rebalance threshold.</p>
+ * 
+ * <p>With {@link Scheduling#WORK_STEALING} the phases run on a fork/join pool,
+ * split by the estimated cost of the agents (see {@link #setCostEstimator(IntToLongFunction)}),
+ * and an agent with very many neighbours can split its own scan with
+ * {@link #countMatches(int, int, IntPredicate)}. {@link #getBusyReport()} shows
+ * the busy time of each worker in each phase, to check that they finish evenly.</p>
+ * 
+ * <p>A phase with a method marked {@link ThreadScheduledMethod#blocking()} runs
+ * each of its agents as a separate task instead, on virtual threads when the Java
+ * version has them (see {@link BlockingExecutor}), so agents that wait on I/O or
+ * on each other do not stall the workers.</p>
+ * 
+ * <p>Consecutive phases whose methods all declare {@link Access#SELF} (see
+ * {@link ThreadScheduledMethod#access()}) are fused into one pass: each agent
+ * runs them back to back and the barriers between them are dropped. The agents
+ * still run only the phases whose active set and guard they are in, checked
+ * just before each phase, so a phase can add the agent to the next one.</p>
+ * 
+ * <p>The annotated methods and fields are turned into direct invokers when the
+ * agent class is registered (see {@link Invokers}), so no reflection is used
+ * while the phases run.</p>
+ * 
  * <p>Usage example:
  * <pre>
  * public class Agent {
@@ -37,7 +100,7 @@ import repast.simphony.engine.schedule.ScheduledMethod;
  * @author Zhongkui Ma - Original 
  * @author Bingkun Zhao - Modified and improvements
  * 
- * @time Last update time: 07/8/2025
+ * @time Last update time: 16/10/2026
  */
 public class AgentManager<T> {
 
@@ -48,24 +111,128 @@ public class AgentManager<T> {
     private ArrayList<T> agents;
 
     /** 
-     * Fields that control whether an agent should execute in a specific phase.
-     * Array size determines maximum number of execution phases.
-     * Each field corresponds to a phase and should be of boolean type.
+     * The phases that agents will execute in each round of the simulation, in ascending order.
+     * Built from the @ThreadScheduledMethod and @ThreadScheduledField annotations.
      */
-    private Field[] fields;
+    private PhaseRegistry<T> phases;
+
+    /** The total amount of thread. */
+    private int numThread;
+
+    /** The amount of agents given to the constructor, used to size the active sets. */
+    private int capacity;
+
+    /** Binds the views to agents, or null if the manager keeps agent objects. */
+    private ViewBinder<T> binder;
+
+    /** The amount of agents seen through views. */
+    private int numViews;
+
+    /** The view of each worker, created by the worker on first use. */
+    private Object[] views;
+
+    /** The persistent worker threads shared by all phases. */
+    private WorkerPool workerPool;
 
     /** 
-     * Methods that agents will execute in different phases of the simulation.
-     * Array size determines maximum number of execution phases.
-     * Methods should be annotated with @ThreadScheduledMethod.
+     * The amount of chunks each worker gets on average when the grain size is automatic.
+     * More chunks balance uneven agents better, fewer chunks cost less synchronization.
      */
-    private Method[] methods;
+    private static final int CHUNKS_PER_THREAD = 8;
 
-    /** The total amount of thread. */
-    private int numThread;
+    /** The smallest chunk chosen automatically. */
+    private static final int MIN_AUTO_GRAIN = 64;
+
+    /** The amount of agents in one chunk, or 0 to choose it automatically. */
+    private int grainSize;
+
+    /** How the agents of a phase are shared among the workers. */
+    private Scheduling scheduling = Scheduling.DYNAMIC;
+
+    /** The imbalance over which the ranges of the workers are moved, by default 20%. */
+    private double rebalanceThreshold = 0.2;
+
+    /**
+     * The busy time, summed over the workers, measured before the imbalance is checked.
+     * Short ticks are gathered until then, so timer noise does not move the ranges.
+     */
+    private static final long MIN_REBALANCE_NANOS = 50_000_000;
+
+    /** The range of agents of each worker in static scheduling: worker w owns [partition[w], partition[w + 1]). */
+    private int[] partition;
+
+    /** The amount of times the ranges have been moved. */
+    private int rebalanceCount;
+
+    /** The fork/join workers of work-stealing scheduling, started when the mode is chosen. */
+    private StealingPool stealingPool;
+
+    /** Estimates the cost of the agent at a position, or null if every agent costs the same. */
+    private IntToLongFunction costEstimator;
+
+    /** The estimated cost of the agents before each position, or null until it is needed. */
+    private long[] costPrefix;
+
+    /** The length of the parts of a scan split by {@link #countMatches(int, int, IntPredicate)}. */
+    private int scanSplitSize = 4096;
+
+    /** Runs the agents of blocking phases, started by the first blocking phase. */
+    private BlockingExecutor blockingExecutor;
+
+    /** The most agents of a blocking phase in flight, or 0 for the default of the executor. */
+    private int maxBlockingTasks;
+
+    /** Whether consecutive phases declared {@link Access#SELF} share one pass over the agents. */
+    private boolean phaseFusion = true;
+
+    /** The work of a piece of a phase in work-stealing scheduling. */
+    private final StealingPool.RangeTask stealTask = this::runPiece;
+
+    /** The stride between the busy times of two workers, so they do not share a cache line. */
+    private static final int PAD = 8;
+
+    /**
+     * The busy time of each worker in the running phase, in nanoseconds, at index worker * PAD.
+     * The last entry is the thread that steps the manager, which may run pieces of a
+     * phase in work-stealing scheduling.
+     */
+    private long[] phaseBusy;
+
+    /** The busy time of each worker in each phase since the start of the run, in nanoseconds. */
+    private long[][] busyTimes;
+
+    /** The busy time of each worker since the imbalance was last checked, in nanoseconds. */
+    private long[] windowBusy;
+
+    /** The index of the first agent of the next chunk to be claimed in the current phase. */
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    /** The position of the first running phase, published to the workers by the phase barrier. */
+    private int runningFirst;
+
+    /** The position of the last running phase, after runningFirst if phases are fused. */
+    private int runningLast;
+
+    /** The chunk size of the running phase. */
+    private int phaseGrain;
+
+    /** The task handed to the workers in every phase, created once to keep step() allocation-free. */
+    private final WorkerPool.Task phaseTask = this::runChunks;
 
-    /** The thread pool. */
-    private ExecutorService threadPool;
+    /** The double buffers published at the end of every tick. */
+    private DoubleBuffer[] buffers = new DoubleBuffer[0];
+
+    /** The reductions computed at the end of every tick. */
+    private ReductionSlot<T, ?>[] reductions = newSlots(0);
+
+    /** The task run by the workers at the tick barrier: refresh the buffers and compute the reductions. */
+    private final WorkerPool.Task tickEndTask = this::endTick;
+
+    /** The amount of rounds executed so far. */
+    private long tick;
+
+    /** The random numbers of the agents. */
+    private CounterRandom random = new CounterRandom(0);
 
     /**
      * Construct a agent manager.
@@ -73,119 +240,826 @@ public class AgentManager<T> {
      * @param cl        the class of agent
      * @param numAgent  the amount of agents
      * @param numThread the amount of threads
+     * @throws IllegalArgumentException if numThread is not positive, or the annotations
+     *                                  of the agent class are invalid (see {@link PhaseRegistry})
      */
     public AgentManager(Class<T> cl, int numAgent, int numThread) {
     	
         this.numThread = numThread;
+        this.capacity = numAgent;
         agents = new ArrayList<>(numAgent);
-        threadPool = Executors.newFixedThreadPool(numThread);
-        
-        methods = new Method[5];
-        fields = new Field[5];
-        obtainMethods(cl); // Get the thread-scheduled methods of agents.
-        obtainFields(cl); // Get the thread-scheduled fields of agents.
+        phases = new PhaseRegistry<>(cl); // Get the thread-scheduled methods and fields of agents.
+        workerPool = new WorkerPool(numThread);
+        phaseBusy = new long[(numThread + 1) * PAD];
+        busyTimes = new long[phases.size()][numThread + 1];
+        windowBusy = new long[numThread];
 
     }
 
     /**
      * Add one agent to the agent manager.
+     * The position of the agent is the amount of agents added before it, and
+     * is the index used by the active sets.
      *
      * @param agent the agent to add
-     * @throws IllegalArgumentException if agent is null
+     * @throws IllegalStateException if the manager uses views
      */
     public void addAgent(T agent) {
     	
+        if (binder != null) {
+            throw new IllegalStateException("Cannot add agents to a manager that uses views");
+        }
+
         if (agent != null) {
             agents.add(agent); 
+
+            for (var i = 0; i < phases.size(); i++) {
+                ActiveSet set = phases.get(i).getActiveSet();
+                if (set != null) {
+                    set.ensureCapacity(agents.size());
+                }
+            }
         }
         
     } 
-    
+
+    /**
+     * Run the phases on flyweight views instead of agent objects. Each worker gets
+     * one view from the binder and binds it to every agent it visits, so no object
+     * is kept per agent; the fields of the view, including guard fields, are shared.
+     * Blocking phases create a view per agent instead, since the agents run as tasks.
+     *
+     * @param numAgent the amount of agents, at positions 0 to numAgent - 1
+     * @param binder   creates the views and binds them to positions
+     * @throws IllegalArgumentException if numAgent is negative or binder is null
+     * @throws IllegalStateException    if agents have already been added
+     */
+    public void useViews(int numAgent, ViewBinder<T> binder) {
+
+        if (numAgent < 0) {
+            throw new IllegalArgumentException("numAgent cannot be negative: " + numAgent);
+        }
+        if (binder == null) {
+            throw new IllegalArgumentException("Binder cannot be null");
+        }
+        if (!agents.isEmpty()) {
+            throw new IllegalStateException("Agents have already been added");
+        }
+
+        this.binder = binder;
+        this.numViews = numAgent;
+        this.views = new Object[numThread + 1];
+
+        for (var i = 0; i < phases.size(); i++) {
+            ActiveSet set = phases.get(i).getActiveSet();
+            if (set != null) {
+                set.ensureCapacity(numAgent);
+            }
+        }
+
+    }
+
+    /**
+     * Return the amount of agents.
+     *
+     * @return the amount of agents added, or given to {@link #useViews(int, ViewBinder)}
+     */
+    public int getNumAgents() {
+        return binder == null ? agents.size() : numViews;
+    }
+
+    /**
+     * Let a phase visit only the agents of an active set instead of every agent.
+     * The set starts empty; agents join it with {@link ActiveSet#activate(int)}.
+     * Calling it again for the same phase returns the same set.
+     *
+     * @param  phase the phase number
+     * @return       the active set of the phase
+     * @throws IllegalArgumentException if no method is scheduled in the phase
+     */
+    public ActiveSet useActiveSet(int phase) {
+
+        Phase<T> target = phases.find(phase);
+        if (target == null) {
+            throw new IllegalArgumentException("No thread scheduled method in phase " + phase);
+        }
+
+        if (target.getActiveSet() == null) {
+            target.setActiveSet(new ActiveSet(Math.max(getNumAgents(), capacity)));
+        }
+        return target.getActiveSet();
+
+    }
+
+    /**
+     * Set the seed of the random numbers of the agents. Call it before the first round.
+     *
+     * @param seed the seed, e.g. the randomSeed parameter of the model
+     */
+    public void setRandomSeed(long seed) {
+
+        random = new CounterRandom(seed);
+        random.setTick(tick);
+
+    }
+
+    /**
+     * Return the random numbers of the agents. The returned object stays the
+     * same unless {@link #setRandomSeed(long)} is called.
+     *
+     * @return the random number service
+     */
+    public CounterRandom getRandom() {
+        return random;
+    }
+
+    /**
+     * Register a double buffer to be published at the end of every tick.
+     *
+     * @param buffer the buffer
+     * @throws IllegalArgumentException if buffer is null
+     */
+    public void registerBuffer(DoubleBuffer buffer) {
+
+        if (buffer == null) {
+            throw new IllegalArgumentException("Buffer cannot be null");
+        }
+        buffers = Arrays.copyOf(buffers, buffers.length + 1);
+        buffers[buffers.length - 1] = buffer;
+
+    }
+
+    /**
+     * Register a reduction to be computed over all agents at the end of every tick.
+     * Reductions are computed in the order they are registered.
+     *
+     * @param reduction the reduction
+     * @throws IllegalArgumentException if reduction is null
+     */
+    public void registerReduction(Reduction<? super T, ?> reduction) {
+
+        if (reduction == null) {
+            throw new IllegalArgumentException("Reduction cannot be null");
+        }
+        reductions = Arrays.copyOf(reductions, reductions.length + 1);
+        reductions[reductions.length - 1] = new ReductionSlot<>(reduction, numThread);
+
+    }
+
+    /**
+     * Set the amount of agents in one chunk of a phase.
+     *
+     * @param grainSize the chunk size, or 0 to choose it from the amount of agents and threads
+     * @throws IllegalArgumentException if grainSize is negative
+     */
+    public void setGrainSize(int grainSize) {
+
+        if (grainSize < 0) {
+            throw new IllegalArgumentException("grainSize cannot be negative: " + grainSize);
+        }
+        this.grainSize = grainSize;
+
+    }
+
+    /**
+     * Set how the agents of a phase are shared among the workers.
+     *
+     * @param scheduling the scheduling
+     * @throws IllegalArgumentException if scheduling is null
+     */
+    public void setScheduling(Scheduling scheduling) {
+
+        if (scheduling == null) {
+            throw new IllegalArgumentException("Scheduling cannot be null");
+        }
+        this.scheduling = scheduling;
+        partition = null; // Split evenly again at the next tick.
+        Arrays.fill(windowBusy, 0);
+        if (scheduling == Scheduling.WORK_STEALING && stealingPool == null) {
+            stealingPool = new StealingPool(numThread);
+        }
+
+    }
+
+    public Scheduling getScheduling() {
+        return scheduling;
+    }
+
+    /**
+     * Set the imbalance over which static scheduling moves the ranges of the workers.
+     *
+     * @param threshold how much the busy time of the slowest worker may exceed the
+     *                  mean, e.g. 0.2 for 20%
+     * @throws IllegalArgumentException if threshold is negative
+     */
+    public void setRebalanceThreshold(double threshold) {
+
+        if (!(threshold >= 0)) {
+            throw new IllegalArgumentException("threshold cannot be negative: " + threshold);
+        }
+        this.rebalanceThreshold = threshold;
+
+    }
+
+    /**
+     * Return the amount of times static scheduling has moved the ranges of the workers.
+     *
+     * @return the amount of rebalances so far
+     */
+    public int getRebalanceCount() {
+        return rebalanceCount;
+    }
+
+    /**
+     * Set how the cost of an agent is estimated, e.g. from its degree. Work-stealing
+     * scheduling splits the phases by cost, and static scheduling starts from ranges
+     * of equal cost. The costs are read before the next tick, and again whenever the
+     * amount of agents changes.
+     *
+     * @param costEstimator gives the cost of the agent at a position, at least 0,
+     *                      or null if every agent costs the same
+     */
+    public void setCostEstimator(IntToLongFunction costEstimator) {
+
+        this.costEstimator = costEstimator;
+        this.costPrefix = null;
+        this.partition = null;
+
+    }
+
+    /**
+     * Set how many agents of a blocking phase may run at once. Call it before the first round.
+     *
+     * @param maxBlockingTasks the most tasks in flight, or 0 for 10,000 on virtual
+     *                         threads and 256 on platform threads
+     * @throws IllegalArgumentException if maxBlockingTasks is negative
+     */
+    public void setMaxBlockingTasks(int maxBlockingTasks) {
+
+        if (maxBlockingTasks < 0) {
+            throw new IllegalArgumentException("maxBlockingTasks cannot be negative: " + maxBlockingTasks);
+        }
+        this.maxBlockingTasks = maxBlockingTasks;
+
+    }
+
+    /**
+     * Turn the fusion of phases declared {@link Access#SELF} on or off, e.g. to
+     * measure what it saves. It is on by default. Call it before the first round.
+     *
+     * @param phaseFusion whether fusible phases share one pass over the agents
+     */
+    public void setPhaseFusion(boolean phaseFusion) {
+        this.phaseFusion = phaseFusion;
+    }
+
+    public boolean isPhaseFusion() {
+        return phaseFusion;
+    }
+
+    /**
+     * Set the length of the parts of a scan split by {@link #countMatches(int, int, IntPredicate)}.
+     *
+     * @param scanSplitSize the amount of positions in one part
+     * @throws IllegalArgumentException if scanSplitSize is not positive
+     */
+    public void setScanSplitSize(int scanSplitSize) {
+
+        if (scanSplitSize <= 0) {
+            throw new IllegalArgumentException("scanSplitSize must be positive: " + scanSplitSize);
+        }
+        this.scanSplitSize = scanSplitSize;
+
+    }
+
+    public int getScanSplitSize() {
+        return scanSplitSize;
+    }
+
+    /**
+     * Count the positions of a range that pass a test, e.g. the neighbours of an
+     * agent in some state. In work-stealing scheduling, when called from a phase,
+     * a range longer than the scan split size is counted in parts that idle workers
+     * can steal, so a single hub does not hold up the phase. Otherwise the range is
+     * counted in a loop.
+     *
+     * @param  from the first position, inclusive
+     * @param  to   the last position, exclusive
+     * @param  test the test, which must only read state that does not change in the phase
+     * @return      the amount of positions that pass the test
+     */
+    public int countMatches(int from, int to, IntPredicate test) {
+
+        StealingPool pool = scheduling == Scheduling.WORK_STEALING ? stealingPool : null;
+        if (pool != null) {
+            return pool.countMatches(from, to, scanSplitSize, test);
+        }
+
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            if (test.test(i)) result++;
+        }
+        return result;
+
+    }
+
+    /**
+     * Return the busy time of each worker in each phase since the start of the run,
+     * with the imbalance of each phase: the busiest worker over the mean. Fused
+     * phases share one line.
+     *
+     * @return the report, one line per phase, in milliseconds
+     */
+    public String getBusyReport() {
+
+        StringBuilder report = new StringBuilder("Busy time per worker (ms):");
+        for (var i = 0; i < phases.size(); i++) {
+
+            int last = lastFused(i);
+            if (last > i) {
+                report.append(String.format("%n    Phases %d-%d (fused):", phases.get(i).getNumber(),
+                    phases.get(last).getNumber()));
+                appendBusy(report, busyTimes[i]);
+                i = last;
+                continue;
+            }
+
+            long[] busy = busyTimes[i];
+            if (phases.get(i).isBlocking()) { // One task per agent: only the length of the phase is known.
+                report.append(String.format("%n    Phase %d: blocking, %.1f elapsed", phases.get(i).getNumber(),
+                    busy[numThread] / 1e6));
+                continue;
+            }
+
+            report.append(String.format("%n    Phase %d:", phases.get(i).getNumber()));
+            appendBusy(report, busy);
+
+        }
+        return report.toString();
+
+    }
+
+    /**
+     * Append the busy times of one phase, or of fused phases, to the report.
+     *
+     * @param report the report
+     * @param busy   the busy time of each worker, then of the stepping thread
+     */
+    private void appendBusy(StringBuilder report, long[] busy) {
+
+        long max = 0;
+        long sum = 0;
+        for (int w = 0; w < numThread; w++) {
+            report.append(String.format(" %.1f", busy[w] / 1e6));
+            max = Math.max(max, busy[w]);
+            sum += busy[w];
+        }
+        if (busy[numThread] > 0) { // Pieces run by the stepping thread while it waited.
+            report.append(String.format(" (caller %.1f)", busy[numThread] / 1e6));
+        }
+        report.append(String.format(" | max/mean %.2f", sum > 0 ? max * (double) numThread / sum : 1.0));
+
+    }
+
+    /**
+     * Return the last phase that runs in the same pass as a phase.
+     *
+     * @param  i the position of the first phase of the pass
+     * @return   the position of the last phase of the pass, i if the phase runs alone
+     */
+    private int lastFused(int i) {
+        return phaseFusion ? phases.sweepEnd(i) : i;
+    }
+
+    /**
+     * Print the busy time report, e.g. at the end of the run.
+     */
+    public void printBusyReport() {
+        System.out.println(getBusyReport());
+    }
+
+    /**
+     * Return the chunk size used for the current amount of agents.
+     *
+     * @return the configured grain size, or the automatic one if none is configured
+     */
+    public int getGrainSize() {
+
+        if (grainSize > 0) return grainSize;
+        return Math.max(MIN_AUTO_GRAIN, getNumAgents() / (numThread * CHUNKS_PER_THREAD));
+
+    }
     
 
     /**
      * The action of agent manager in one round of the simulation model.
      *
-     * @throws IllegalArgumentException if the field or method does not exit
-     * @throws IllegalAccessException   if the field or method cannot be accessed
+     * @throws IllegalStateException if a worker thread failed or the manager has been shut down
      */
     @ScheduledMethod(start = 1, interval = 1, priority = 1)
-    public void step() throws IllegalArgumentException, IllegalAccessException { //
+    public void step() { //
     	
     	
-        if (agents.size() == 0) return; // If there is no agent, the manager does nothing.
+        if (getNumAgents() == 0) return; // If there is no agent, the manager does nothing.
 
+        tick++;
+        random.setTick(tick);
+        phaseGrain = getGrainSize();
+        int size = getNumAgents();
+        if (costEstimator != null && (costPrefix == null || costPrefix.length != size + 1)) {
+            costPrefix = estimateCosts(size);
+        }
+        if (scheduling == Scheduling.STATIC && (partition == null || partition[numThread] != size)) {
+            partition = evenPartition(size);
+        }
+        long leafCost = (costPrefix != null ? costPrefix[size] : size) / (numThread * CHUNKS_PER_THREAD);
         
-        for (var i = 0; i < methods.length; i++) { // Loop different phase to run different methods.
+        for (var i = 0; i < phases.size(); i++) { // Loop different phase to run different methods.
+
+            runningFirst = i;
+            runningLast = lastFused(i);
+
+            if (phases.get(i).isBlocking()) {
+                runBlocking(phases.get(i), size);
+            } else if (scheduling == Scheduling.WORK_STEALING) {
+                stealingPool.execute(costPrefix, size, leafCost, stealTask);
+            } else {
+                cursor.set(0);
+                workerPool.execute(phaseTask); // Returns when all agents have finished processing.
+            }
+            recordBusy(i);
+            i = runningLast; // The fused phases have run as well.
+
+        }
+
+        if (scheduling == Scheduling.STATIC) {
+            rebalance();
+        }
+
+        for (DoubleBuffer buffer : buffers) { // The tick barrier: publish the writes of this tick.
+            buffer.swap();
+        }
+
+        if (buffers.length > 0 || reductions.length > 0) {
+            workerPool.execute(tickEndTask);
+            for (ReductionSlot<T, ?> slot : reductions) {
+                slot.finish();
+            }
+        }
+
+    }
+
+    /**
+     * Run the share of the tick barrier that belongs to the calling worker.
+     *
+     * @param worker the index of the worker
+     */
+    private void endTick(int worker) {
 
-        	// 只有当method和field都存在时才执行
-            if (methods[i] == null || fields[i] == null) continue;
-            
-            // 为每个phase创建临时线程池
-            threadPool = Executors.newFixedThreadPool(numThread);
-            
-            Iterator<T> agentIterator = agents.iterator();
+        int[] owned = scheduling == Scheduling.STATIC ? partition : null;
 
-            while (agentIterator.hasNext()) {
+        for (DoubleBuffer buffer : buffers) { // Refresh the write copies.
+            long size = buffer.size();
+            if (owned != null && size == owned[numThread]) { // Per-agent buffers stay with the owner of the agents.
+                buffer.sync(owned[worker], owned[worker + 1]);
+            } else {
+                buffer.sync((int) (size * worker / numThread), (int) (size * (worker + 1) / numThread));
+            }
+        }
 
-                T agent = agentIterator.next();
-                fields[i].setAccessible(true);
+        if (reductions.length == 0) return;
 
-                if (fields[i].getBoolean(agent)) {// If the agent need to execute the method.
+        for (ReductionSlot<T, ?> slot : reductions) {
+            slot.start(worker);
+        }
 
-                    AgentRunnable<T> runnable = new AgentRunnable<>(agent, methods[i]);
-                    threadPool.submit(runnable);
+        long size = getNumAgents();
+        int from = owned != null ? owned[worker] : (int) (size * worker / numThread);
+        int to = owned != null ? owned[worker + 1] : (int) (size * (worker + 1) / numThread);
+        for (int index = from; index < to; index++) {
+
+            T agent = agentAt(index, worker);
+
+            try {
 
+                for (ReductionSlot<T, ?> slot : reductions) {
+                    slot.accumulate(worker, agent);
                 }
 
+            } catch (Exception e) {
+
+                e.printStackTrace();
+
             }
 
-            threadPool.shutdown(); // Shut down the thread pool.
-            while (!threadPool.isTerminated()); // Until all agents have finished processing.
+        }
+
+    }
+
+    /**
+     * Estimate the cost of every agent.
+     *
+     * @param  size the amount of agents
+     * @return      the cost of the agents before each position
+     */
+    private long[] estimateCosts(int size) {
+
+        long[] prefix = new long[size + 1];
+        for (int index = 0; index < size; index++) {
+            prefix[index + 1] = prefix[index] + Math.max(0, costEstimator.applyAsLong(index));
+        }
+        return prefix;
+
+    }
+
+    /**
+     * Split the agents into one range of about the same estimated cost per worker,
+     * or of the same size if there is no cost estimator.
+     *
+     * @param  size the amount of agents
+     * @return      the bounds of the ranges
+     */
+    private int[] evenPartition(int size) {
 
+        int[] bounds = new int[numThread + 1];
+        for (int w = 0; w <= numThread; w++) {
+            if (costPrefix == null) {
+                bounds[w] = (int) ((long) size * w / numThread);
+            } else { // The first position whose prefix reaches the share of the worker.
+                int index = Arrays.binarySearch(costPrefix, costPrefix[size] / numThread * w);
+                if (index < 0) index = -index - 1;
+                while (index > 0 && costPrefix[index - 1] == costPrefix[index]) index--;
+                bounds[w] = Math.max(w > 0 ? bounds[w - 1] : 0, Math.min(index, size));
+            }
         }
+        bounds[numThread] = size;
+        return bounds;
 
     }
 
     /**
-     * Obtain the thread scheduled fields of agents.
+     * Add the busy times of a finished phase to the totals, and clear them.
      *
-     * @param cl the class of agents
+     * @param i the index of the phase
      */
-    private void obtainFields(Class<T> cl) {
+    private void recordBusy(int i) {
+
+        for (int w = 0; w <= numThread; w++) {
+            long busy = phaseBusy[w * PAD];
+            busyTimes[i][w] += busy;
+            if (w < numThread) windowBusy[w] += busy;
+            phaseBusy[w * PAD] = 0;
+        }
+
+    }
+
+    /**
+     * Move the ranges of the workers if their busy times are too uneven, once
+     * enough time has been measured. The cost of each range is assumed to be
+     * spread evenly over its agents, and the new bounds cut the total cost into
+     * equal shares.
+     */
+    private void rebalance() {
+
+        long max = 0;
+        long sum = 0;
+        for (int w = 0; w < numThread; w++) {
+            max = Math.max(max, windowBusy[w]);
+            sum += windowBusy[w];
+        }
+        if (sum < MIN_REBALANCE_NANOS) return;
+
+        long[] busy = windowBusy.clone();
+        Arrays.fill(windowBusy, 0);
+        double mean = (double) sum / numThread;
+        if (max <= mean * (1 + rebalanceThreshold)) return;
+
+        int[] old = partition;
+        int[] bounds = new int[numThread + 1];
+        bounds[numThread] = old[numThread];
+
+        int w = 0;
+        double before = 0; // The cost of the ranges before range w.
+        for (int k = 1; k < numThread; k++) {
 
-        for (Field f : cl.getDeclaredFields()) {
+            double target = mean * k;
+            while (w < numThread - 1 && before + busy[w] < target) {
+                before += busy[w];
+                w++;
+            }
+
+            int cut = old[w];
+            if (busy[w] > 0) {
+                cut += (int) Math.round((target - before) / busy[w] * (old[w + 1] - old[w]));
+            }
+            bounds[k] = Math.max(bounds[k - 1], Math.min(cut, old[w + 1]));
+
+        }
+
+        partition = bounds;
+        rebalanceCount++;
+
+    }
+
+    /**
+     * Run the calling worker's share of the running phase: its own range in static
+     * scheduling, otherwise chunks claimed until none are left.
+     *
+     * @param worker the index of the worker
+     */
+    private void runChunks(int worker) {
 
-            ThreadScheduledField anno = f.getAnnotation(ThreadScheduledField.class);
+        long start = System.nanoTime();
+        int first = runningFirst;
+        int last = runningLast;
 
-            if (anno != null) { 
-            	int phase = anno.phase(); 
-                if (phase >= 0 && phase < fields.length) {  // 添加边界检查
-                    fields[phase] = f; 
+        if (scheduling == Scheduling.STATIC) {
+
+            runPhases(first, last, partition[worker], partition[worker + 1], worker);
+
+        } else {
+
+            int grain = phaseGrain;
+            int size = getNumAgents();
+            for (int from = cursor.getAndAdd(grain); from < size; from = cursor.getAndAdd(grain)) {
+                runPhases(first, last, from, Math.min(from + grain, size), worker);
+            }
+
+        }
+
+        phaseBusy[worker * PAD] += System.nanoTime() - start;
+
+    }
+
+    /**
+     * Run a piece of the running phase in work-stealing scheduling.
+     *
+     * @param from the first position, inclusive
+     * @param to   the last position, exclusive
+     * @param slot the slot of the calling thread
+     */
+    private void runPiece(int from, int to, int slot) {
+
+        long start = System.nanoTime();
+        runPhases(runningFirst, runningLast, from, to, slot);
+        // The time spent blocked on stolen parts of a hub's scan is idle, not busy.
+        phaseBusy[slot * PAD] += System.nanoTime() - start - stealingPool.takeIdle(slot);
+
+    }
+
+    /**
+     * Run a blocking phase with one task per agent, and wait for all of them.
+     * The time the phase takes is recorded as busy time of the calling thread.
+     *
+     * @param phase the running phase
+     * @param size  the amount of agents
+     */
+    private void runBlocking(Phase<T> phase, int size) {
+
+        long start = System.nanoTime();
+        if (blockingExecutor == null) {
+            blockingExecutor = new BlockingExecutor(maxBlockingTasks);
+        }
+        BlockingExecutor executor = blockingExecutor;
+        ActiveSet set = phase.getActiveSet();
+
+        for (int w = 0; w < (size + 63) >>> 6; w++) { // The agents of the set, or every agent.
+
+            long bits = set == null ? -1L : set.word(w);
+            if (w == (size - 1) >>> 6) bits &= -1L >>> (63 - ((size - 1) & 63));
+
+            while (bits != 0) {
+                int index = (w << 6) + Long.numberOfTrailingZeros(bits);
+                executor.fork(() -> runAgent(phase, binder == null ? agents.get(index) : newBoundView(index)));
+                bits &= bits - 1;
+            }
+
+        }
+
+        executor.join();
+        phaseBusy[numThread * PAD] += System.nanoTime() - start;
+
+    }
+
+    /**
+     * Return a new view bound to a position, for an agent that runs as its own task.
+     *
+     * @param  index the position of the agent
+     * @return       the view
+     */
+    private T newBoundView(int index) {
+
+        T view = binder.newView();
+        binder.bind(view, index);
+        return view;
+
+    }
+
+    /**
+     * Run one phase, or several fused phases, on a range of agents.
+     *
+     * @param first  the position of the first phase
+     * @param last   the position of the last phase, first if it runs alone
+     * @param from   the first position, inclusive
+     * @param to     the last position, exclusive
+     * @param worker the index of the calling worker
+     */
+    private void runPhases(int first, int last, int from, int to, int worker) {
+
+        if (first == last) {
+            Phase<T> phase = phases.get(first);
+            runRange(phase, phase.getActiveSet(), from, to, worker);
+        } else {
+            runFused(first, last, from, to, worker);
+        }
+
+    }
+
+    /**
+     * Run fused phases on a range of agents: each agent runs every phase it takes
+     * part in before the next agent. The agents visited are those in the active set
+     * of any of the phases, or every agent if one of the phases has no active set.
+     *
+     * @param first  the position of the first phase
+     * @param last   the position of the last phase
+     * @param from   the first position, inclusive
+     * @param to     the last position, exclusive
+     * @param worker the index of the calling worker
+     */
+    private void runFused(int first, int last, int from, int to, int worker) {
+
+        if (from >= to) return;
+
+        boolean everyAgent = false;
+        for (int p = first; p <= last; p++) {
+            everyAgent |= phases.get(p).getActiveSet() == null;
+        }
+
+        int end = to - 1;
+        for (int w = from >>> 6; w <= end >>> 6; w++) {
+
+            long bits = -1L;
+            if (!everyAgent) {
+                bits = 0;
+                for (int p = first; p <= last; p++) {
+                    bits |= phases.get(p).getActiveSet().word(w);
                 }
             }
+            if (w == from >>> 6) bits &= -1L << from;
+            if (w == end >>> 6) bits &= -1L >>> (63 - (end & 63));
+
+            while (bits != 0) {
+
+                int index = (w << 6) + Long.numberOfTrailingZeros(bits);
+                T agent = agentAt(index, worker);
+                for (int p = first; p <= last; p++) { // Checked just before each phase, which an earlier one may change.
+                    Phase<T> phase = phases.get(p);
+                    ActiveSet set = phase.getActiveSet();
+                    if (set == null || set.isActive(index)) {
+                        runAgent(phase, agent);
+                    }
+                }
+                bits &= bits - 1;
+
+            }
 
         }
 
     }
 
     /**
-     * Obtain the thread scheduled methods of agents
+     * Run a phase on a range of agents.
      *
-     * @param cl the class of agents.
+     * @param phase  the running phase
+     * @param set    the active set of the phase, or null to visit every agent
+     * @param from   the first position, inclusive
+     * @param to     the last position, exclusive
+     * @param worker the index of the calling worker
      */
-    private void obtainMethods(Class<T> cl) {
+    private void runRange(Phase<T> phase, ActiveSet set, int from, int to, int worker) {
 
-        for (Method m : cl.getDeclaredMethods()) {
+        if (from >= to) return;
+
+        if (set == null) {
+
+            for (int index = from; index < to; index++) {
+                runAgent(phase, index, worker);
+            }
 
-            ThreadScheduledMethod anno = m.getAnnotation(ThreadScheduledMethod.class);
+        } else {
 
-            if (anno != null) { 
-            	int phase = anno.phase(); 
-                if (phase >= 0 && phase < methods.length) {  // 添加边界检查
-                    m.setAccessible(true);  // 设置可访问
-                    methods[phase] = m; 
+            int last = to - 1;
+            for (int w = from >>> 6; w <= last >>> 6; w++) { // Only the set bits of the range are visited.
+
+                long bits = set.word(w);
+                if (w == from >>> 6) bits &= -1L << from;
+                if (w == last >>> 6) bits &= -1L >>> (63 - (last & 63));
+
+                while (bits != 0) {
+                    runAgent(phase, (w << 6) + Long.numberOfTrailingZeros(bits), worker);
+                    bits &= bits - 1; // Clear the lowest set bit.
                 }
+
             }
 
         }
@@ -193,52 +1067,118 @@ public class AgentManager<T> {
     }
 
     /**
-     * The threads of agents.
+     * Run the methods of a phase on one agent, if the agent takes part in it.
+     *
+     * @param phase  the running phase
+     * @param index  the position of the agent
+     * @param worker the index of the calling worker
+     */
+    private void runAgent(Phase<T> phase, int index, int worker) {
+        runAgent(phase, agentAt(index, worker));
+    }
+
+    /**
+     * Run the methods of a phase on one agent, if the agent takes part in it.
      *
-     * @param <V> the class of agent
+     * @param phase the running phase
+     * @param agent the agent
      */
-    private class AgentRunnable<V> implements Runnable {
+    private void runAgent(Phase<T> phase, T agent) {
 
-        private V agent;
+        try {
 
-        private Method method;
+            if (phase.accepts(agent)) { // If the agent need to execute the methods.
+                phase.run(agent);
+            }
 
-        public AgentRunnable(V agent, Method method) {
+        } catch (Exception e) {
 
-            this.agent = agent;
-            this.method = method;
+            e.printStackTrace();
 
         }
 
-        /**
-         * Execute one specific method of the agent.
-         */
-        @Override
-        public void run() {
+    }
 
-            try {
+    /**
+     * Return the agent at a position: the agent object, or the view of the calling
+     * worker bound to the position.
+     *
+     * @param  index  the position of the agent
+     * @param  worker the index of the calling worker
+     * @return        the agent
+     */
+    @SuppressWarnings("unchecked")
+    private T agentAt(int index, int worker) {
 
-                method.invoke(agent);
+        if (binder == null) return agents.get(index);
 
-            } catch (
-                IllegalAccessException
-                | IllegalArgumentException
-                | InvocationTargetException e) {
+        T view = (T) views[worker];
+        if (view == null) { // Created by the worker, so the views of the workers are not allocated side by side.
+            view = binder.newView();
+            views[worker] = view;
+        }
+        binder.bind(view, index);
+        return view;
 
-                e.printStackTrace();
+    }
 
-            }
+    @SuppressWarnings("unchecked")
+    private static <T> ReductionSlot<T, ?>[] newSlots(int length) {
+        return (ReductionSlot<T, ?>[]) new ReductionSlot<?, ?>[length];
+    }
+
+    /**
+     * A registered reduction and the partial results of the workers in the current tick.
+     *
+     * @param <T> the type of agents
+     * @param <A> the type of the partial result
+     */
+    private static final class ReductionSlot<T, A> {
+
+        private final Reduction<? super T, A> reduction;
 
+        private final Object[] partials;
+
+        ReductionSlot(Reduction<? super T, A> reduction, int numThread) {
+            this.reduction = reduction;
+            this.partials = new Object[numThread];
+        }
+
+        /** Create the partial result of a worker, on the worker itself. */
+        void start(int worker) {
+            partials[worker] = reduction.newPartial();
+        }
+
+        @SuppressWarnings("unchecked")
+        void accumulate(int worker, T agent) {
+            reduction.accumulate((A) partials[worker], agent);
+        }
+
+        /** Merge the partial results in worker order and hand over the result. */
+        @SuppressWarnings("unchecked")
+        void finish() {
+            A result = (A) partials[0];
+            for (int i = 1; i < partials.length; i++) {
+                reduction.merge(result, (A) partials[i]);
+            }
+            Arrays.fill(partials, null);
+            reduction.finish(result);
         }
 
     }
-    
+
     /**
-     * Shutdown the thread pool.
+     * Shutdown the worker threads. The agent manager cannot step any more afterwards.
      */
     public void shutdown() {
-        if (threadPool != null && !threadPool.isShutdown()) {
-            threadPool.shutdown();
+        if (workerPool != null) {
+            workerPool.shutdown();
+        }
+        if (stealingPool != null) {
+            stealingPool.shutdown();
+        }
+        if (blockingExecutor != null) {
+            blockingExecutor.shutdown();
         }
     }
 
@@ -0,0 +1,151 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package multiThreads;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * BlockingExecutor - Runs the agents of blocking phases as separate tasks
+ *
+ * <p>Each agent of a phase with a blocking method is forked as its own task, so
+ * an agent that waits only holds up itself. On Java 21 or later the tasks run on
+ * virtual threads, found by reflection since the code is compiled for Java 17;
+ * on older Java they run on a cached pool of platform threads.</p>
+ *
+ * <p>It is used like a structured task scope, one phase at a time: the thread
+ * that steps the agent manager forks the tasks of the phase, then {@link #join()}
+ * returns once every one of them has finished, which is the phase barrier. At
+ * most {@link #getMaxTasks()} tasks are in flight, so forking a large population
+ * neither queues a task object per agent nor starts a platform thread per agent.</p>
+ *
+ * @author Bingkun Zhao
+ *
+ * @time Last update time: 16/10/2026
+ */
+final class BlockingExecutor {
+
+    /** The most tasks in flight on virtual threads by default. */
+    private static final int VIRTUAL_MAX_TASKS = 10_000;
+
+    /** The most tasks in flight on platform threads by default. */
+    private static final int PLATFORM_MAX_TASKS = 256;
+
+    /** The executor of the tasks. */
+    private final ExecutorService executor;
+
+    /** Whether the tasks run on virtual threads. */
+    private final boolean virtual;
+
+    /** The most tasks in flight. */
+    private final int maxTasks;
+
+    /** One permit per task that may still be forked before the limit is reached. */
+    private final Semaphore permits;
+
+    /**
+     * Construct an executor.
+     *
+     * @param maxTasks the most tasks in flight, or 0 for the default of the kind of threads
+     * @throws IllegalArgumentException if maxTasks is negative
+     */
+    BlockingExecutor(int maxTasks) {
+
+        if (maxTasks < 0) {
+            throw new IllegalArgumentException("maxTasks cannot be negative: " + maxTasks);
+        }
+
+        ExecutorService service;
+        boolean onVirtualThreads;
+        try {
+            service = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            onVirtualThreads = true;
+        } catch (ReflectiveOperationException e) { // Before Java 21.
+            service = Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "AgentManager-blocking");
+                thread.setDaemon(true);
+                return thread;
+            });
+            onVirtualThreads = false;
+        }
+
+        this.executor = service;
+        this.virtual = onVirtualThreads;
+        this.maxTasks = maxTasks > 0 ? maxTasks : virtual ? VIRTUAL_MAX_TASKS : PLATFORM_MAX_TASKS;
+        this.permits = new Semaphore(this.maxTasks);
+
+    }
+
+    /**
+     * Return whether the tasks run on virtual threads.
+     *
+     * @return true on Java 21 or later
+     */
+    boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Return the most tasks in flight.
+     *
+     * @return the limit
+     */
+    int getMaxTasks() {
+        return maxTasks;
+    }
+
+    /**
+     * Start a task, after waiting for a free place if the limit is reached.
+     *
+     * @param task the task, which must not throw
+     * @throws IllegalStateException if the calling thread is interrupted or the executor is shut down
+     */
+    void fork(Runnable task) {
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while starting a blocking phase", e);
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            throw new IllegalStateException("The blocking executor has been shut down", e);
+        }
+
+    }
+
+    /**
+     * Wait until every forked task has finished.
+     *
+     * @throws IllegalStateException if the calling thread is interrupted
+     */
+    void join() {
+
+        try {
+            permits.acquire(maxTasks); // Every permit is back only when no task is left.
+            permits.release(maxTasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a blocking phase", e);
+        }
+
+    }
+
+    /**
+     * Stop the executor. Threads blocked in a task are interrupted.
+     */
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+}
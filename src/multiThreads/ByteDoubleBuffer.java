@@ -0,0 +1,99 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package multiThreads;
+
+/**
+ * ByteDoubleBuffer - A double-buffered byte per agent
+ *
+ * <p>{@link #get(int)} returns the value published at the last tick barrier and is
+ * safe to call on any agent. {@link #set(int, byte)} and {@link #getNext(int)} act
+ * on the value of the next tick and should only be called by the agent that owns
+ * the element, which then always sees its own latest write.</p>
+ *
+ * @author Bingkun Zhao
+ *
+ * @time Last update time: 16/10/2026
+ */
+public final class ByteDoubleBuffer implements DoubleBuffer {
+
+    /** The values published at the last tick barrier. */
+    private byte[] current;
+
+    /** The values being written for the next tick. */
+    private byte[] next;
+
+    /**
+     * Construct a buffer filled with zeros.
+     *
+     * @param size the amount of elements
+     */
+    public ByteDoubleBuffer(int size) {
+
+        current = new byte[size];
+        next = new byte[size];
+
+    }
+
+    /**
+     * Return the published value of an element.
+     *
+     * @param  index the index of the element
+     * @return       the value at the start of the current tick
+     */
+    public byte get(int index) {
+        return current[index];
+    }
+
+    /**
+     * Return the value an element will have in the next tick.
+     *
+     * @param  index the index of the element
+     * @return       the latest written value
+     */
+    public byte getNext(int index) {
+        return next[index];
+    }
+
+    /**
+     * Write the value an element will have in the next tick.
+     *
+     * @param index the index of the element
+     * @param value the value
+     */
+    public void set(int index, byte value) {
+        next[index] = value;
+    }
+
+    /**
+     * Write both copies of an element, so the value is visible at once.
+     * Only for setting up the simulation, never during a phase.
+     *
+     * @param index the index of the element
+     * @param value the value
+     */
+    public void reset(int index, byte value) {
+
+        current[index] = value;
+        next[index] = value;
+
+    }
+
+    @Override
+    public int size() {
+        return current.length;
+    }
+
+    @Override
+    public void swap() {
+
+        byte[] published = next;
+        next = current;
+        current = published;
+
+    }
+
+    @Override
+    public void sync(int from, int to) {
+        System.arraycopy(current, from, next, from, to - from);
+    }
+
+}
@@ -0,0 +1,118 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package multiThreads;
+
+/**
+ * CounterRandom - Counter-based random numbers for agents
+ *
+ * <p>Every draw is a pure function of (seed, tick, agent, phase, draw), computed
+ * by hashing the key with the SplitMix64 finalizer. There is no shared generator
+ * state, so workers never contend on it, and the result of a run does not depend
+ * on the amount of threads or on which worker processes which agent.</p>
+ *
+ * <p>The {@link AgentManager} advances the tick before each round. Within one
+ * tick, an agent must use a different {@code draw} number for every random number
+ * it needs in the same phase; the phase and draw numbers are limited to 16 bits.</p>
+ *
+ * @author Bingkun Zhao
+ *
+ * @time Last update time: 16/10/2026
+ */
+public final class CounterRandom {
+
+    /** The golden ratio increment of SplitMix64. */
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /** The seed of the run. */
+    private final long seed;
+
+    /** The current tick. */
+    private long tick;
+
+    /** The hash of the seed and the current tick, shared by all draws of the tick. */
+    private long tickKey;
+
+    /**
+     * Construct a random number service.
+     *
+     * @param seed the seed of the run
+     */
+    public CounterRandom(long seed) {
+
+        this.seed = seed;
+        setTick(0);
+
+    }
+
+    /**
+     * Return a uniformly distributed number in [0, 1).
+     *
+     * @param  agent the ID or position of the agent
+     * @param  phase the phase making the draw
+     * @param  draw  the number of the draw within the phase
+     * @return       the random number
+     */
+    public double nextDouble(int agent, int phase, int draw) {
+        return (nextLong(agent, phase, draw) >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Return a uniformly distributed 64-bit number.
+     *
+     * @param  agent the ID or position of the agent
+     * @param  phase the phase making the draw
+     * @param  draw  the number of the draw within the phase
+     * @return       the random number
+     */
+    public long nextLong(int agent, int phase, int draw) {
+
+        // Distinct (agent, phase, draw) keys map to distinct values within a tick.
+        long key = ((long) agent << 32) | ((phase & 0xFFFFL) << 16) | (draw & 0xFFFFL);
+        return mix64(tickKey + key * GOLDEN_GAMMA);
+
+    }
+
+    /**
+     * Return the seed of the run.
+     *
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Return the current tick.
+     *
+     * @return the tick
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Move to another tick. Only called between phases.
+     *
+     * @param tick the tick
+     */
+    void setTick(long tick) {
+
+        this.tick = tick;
+        this.tickKey = mix64(mix64(seed) + tick * GOLDEN_GAMMA);
+
+    }
+
+    /**
+     * The finalizer of SplitMix64 (Stafford variant 13).
+     *
+     * @param  z the value to mix
+     * @return   the mixed value
+     */
+    private static long mix64(long z) {
+
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+
+    }
+
+}
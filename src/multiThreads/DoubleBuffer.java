@@ -0,0 +1,44 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package multiThreads;
+
+/**
+ * DoubleBuffer - Per-agent state with a read copy and a write copy
+ *
+ * <p>During a tick, agents read the values published at the end of the previous
+ * tick and write the values of the next tick into a separate array, so one agent
+ * can read the state of its neighbours while they update it in parallel, without
+ * locks and with a result that does not depend on thread interleaving.</p>
+ *
+ * <p>Buffers registered with {@link AgentManager#registerBuffer(DoubleBuffer)} are
+ * published at the tick barrier, after the last phase: the manager calls
+ * {@link #swap()} and then lets its workers call {@link #sync(int, int)} on
+ * disjoint ranges that together cover the buffer.</p>
+ *
+ * @author Bingkun Zhao
+ *
+ * @time Last update time: 16/10/2026
+ */
+public interface DoubleBuffer {
+
+    /**
+     * Return the amount of elements in the buffer.
+     *
+     * @return the amount of elements
+     */
+    int size();
+
+    /**
+     * Publish the written values: they become the values read in the next tick.
+     */
+    void swap();
+
+    /**
+     * Copy the published values of a range into the write copy, so that elements
+     * which are not written in the next tick keep their value.
+     *
+     * @param from the first element of the range, inclusive
+     * @param to   the last element of the range, exclusive
+     */
+    void sync(int from, int to);
+
+}
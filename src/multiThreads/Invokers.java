@@ -0,0 +1,160 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package multiThreads;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Invokers - Direct invokers for thread-scheduled methods and fields
+ *
+ * <p>The invokers are built once when the agent class is registered, so the hot
+ * path of a phase never goes through {@code Method.invoke} or {@code Field.getBoolean}.
+ * Methods are turned into a {@link Consumer} by {@link LambdaMetafactory}, which
+ * creates a small class that calls the agent method directly and can be inlined
+ * by the JIT like any hand-written lambda. Fields are read through a
+ * {@link MethodHandle} getter, which neither boxes the value nor repeats the
+ * access checks.</p>
+ *
+ * @author Bingkun Zhao
+ *
+ * @time Last update time: 16/10/2026
+ */
+final class Invokers {
+
+    private Invokers() {
+    }
+
+    /**
+     * Build a direct invoker of a method without parameters.
+     *
+     * @param  <T>    the type of agents
+     * @param  method the method to invoke on each agent
+     * @return        a consumer that calls the method on the given agent
+     * @throws IllegalArgumentException if the method has parameters or cannot be accessed
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Consumer<T> action(Method method) {
+
+        if (method.getParameterCount() != 0 || Modifier.isStatic(method.getModifiers())) {
+            throw new IllegalArgumentException(
+                "Thread scheduled method must be an instance method without parameters: " + method);
+        }
+
+        MethodHandles.Lookup lookup = lookupIn(method.getDeclaringClass());
+
+        try {
+
+            MethodHandle handle = lookup.unreflect(method);
+
+            // The lambda class is defined as a nestmate of the agent class, so it may call private methods.
+            CallSite site = LambdaMetafactory.metafactory(
+                lookup,
+                "accept",
+                MethodType.methodType(Consumer.class),
+                MethodType.methodType(void.class, Object.class),
+                handle,
+                MethodType.methodType(void.class, method.getDeclaringClass()));
+
+            return (Consumer<T>) site.getTarget().invoke();
+
+        } catch (Throwable e) {
+
+            // Fall back to a plain method handle when a lambda cannot be spun for the method.
+            return fallbackAction(lookup, method);
+
+        }
+
+    }
+
+    /**
+     * Build a direct reader of a boolean field.
+     *
+     * @param  <T>   the type of agents
+     * @param  field the boolean field to read on each agent
+     * @return       a predicate that returns the value of the field of the given agent
+     * @throws IllegalArgumentException if the field is not boolean or cannot be accessed
+     */
+    static <T> Predicate<T> guard(Field field) {
+
+        if (field.getType() != boolean.class || Modifier.isStatic(field.getModifiers())) {
+            throw new IllegalArgumentException(
+                "Thread scheduled field must be a boolean instance field: " + field);
+        }
+
+        MethodHandle getter;
+
+        try {
+            getter = lookupIn(field.getDeclaringClass()).unreflectGetter(field)
+                .asType(MethodType.methodType(boolean.class, Object.class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot access thread scheduled field: " + field, e);
+        }
+
+        return agent -> {
+            try {
+                return (boolean) getter.invokeExact(agent);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        };
+
+    }
+
+    /**
+     * Build an invoker that calls the method through its method handle.
+     *
+     * @param  <T>    the type of agents
+     * @param  lookup the lookup with access to the class of agents
+     * @param  method the method to invoke on each agent
+     * @return        a consumer that calls the method on the given agent
+     */
+    private static <T> Consumer<T> fallbackAction(MethodHandles.Lookup lookup, Method method) {
+
+        MethodHandle handle;
+
+        try {
+            handle = lookup.unreflect(method).asType(MethodType.methodType(void.class, Object.class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot access thread scheduled method: " + method, e);
+        }
+
+        return agent -> {
+            try {
+                handle.invokeExact(agent);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        };
+
+    }
+
+    /**
+     * Return a lookup with private access to a class of agents.
+     *
+     * @param  cl the class that declares the method or field
+     * @return    the lookup
+     * @throws IllegalArgumentException if the class does not open its package to this one
+     */
+    private static MethodHandles.Lookup lookupIn(Class<?> cl) {
+
+        try {
+            return MethodHandles.privateLookupIn(cl, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot access the agent class: " + cl.getName(), e);
+        }
+
+    }
+
+}
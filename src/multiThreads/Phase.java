@@ -0,0 +1,145 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package multiThreads;
+
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Phase - One execution phase of the agents
+ *
+ * <p>A phase holds every method annotated with the same phase number and the
+ * optional guard field of that phase. The methods are fused into one pass over
+ * the agents: each agent runs all of them back to back, in their declared order,
+ * before the worker moves on to the next agent.</p>
+ *
+ * <p>A phase may use an {@link ActiveSet}, in which case only the agents in the
+ * set are visited; the guard field, if any, is still checked for them.</p>
+ *
+ * @param <T> the type of agents
+ *
+ * @author Bingkun Zhao
+ *
+ * @time Last update time: 16/10/2026
+ */
+final class Phase<T> {
+
+    /** The phase number given by the annotations. */
+    private final int number;
+
+    /** The guard of the phase, or null if every agent takes part. */
+    private final Predicate<T> guard;
+
+    /** The methods of the phase in execution order. */
+    private final Consumer<T>[] actions;
+
+    /** The names of the methods, for diagnostics. */
+    private final String[] names;
+
+    /** Whether a method of the phase may block, see {@link ThreadScheduledMethod#blocking()}. */
+    private final boolean blocking;
+
+    /** Whether every method of the phase touches only its own agent, see {@link Access#SELF}. */
+    private final boolean selfOnly;
+
+    /** The agents that take part in the phase, or null to visit every agent. */
+    private ActiveSet activeSet;
+
+    /**
+     * Construct a phase.
+     *
+     * @param number   the phase number
+     * @param guard    the guard of the phase, or null if every agent takes part
+     * @param actions  the methods of the phase in execution order
+     * @param names    the names of the methods
+     * @param blocking whether a method of the phase may block
+     * @param selfOnly whether every method of the phase touches only its own agent
+     */
+    Phase(int number, Predicate<T> guard, Consumer<T>[] actions, String[] names, boolean blocking,
+          boolean selfOnly) {
+
+        this.number = number;
+        this.guard = guard;
+        this.actions = actions;
+        this.names = names;
+        this.blocking = blocking;
+        this.selfOnly = selfOnly;
+
+    }
+
+    /**
+     * Return the phase number.
+     *
+     * @return the phase number
+     */
+    int getNumber() {
+        return number;
+    }
+
+    /**
+     * Return whether a method of the phase may block.
+     *
+     * @return true if the agents of the phase run as separate tasks
+     */
+    boolean isBlocking() {
+        return blocking;
+    }
+
+    /**
+     * Return whether the phase may share a pass over the agents with its neighbouring phases.
+     *
+     * @return true if every method declares {@link Access#SELF} and none may block
+     */
+    boolean isFusible() {
+        return selfOnly && !blocking;
+    }
+
+    /**
+     * Return the active set of the phase.
+     *
+     * @return the active set, or null if the phase visits every agent
+     */
+    ActiveSet getActiveSet() {
+        return activeSet;
+    }
+
+    /**
+     * Set the active set of the phase. Only called while the simulation is set up.
+     *
+     * @param activeSet the active set
+     */
+    void setActiveSet(ActiveSet activeSet) {
+        this.activeSet = activeSet;
+    }
+
+    /**
+     * Check whether an agent takes part in the phase. The guard is read once,
+     * before the first method of the phase runs.
+     *
+     * @param  agent the agent
+     * @return       true if the agent should run the methods of the phase
+     */
+    boolean accepts(T agent) {
+        return guard == null || guard.test(agent);
+    }
+
+    /**
+     * Run all the methods of the phase on one agent.
+     *
+     * @param agent the agent
+     */
+    void run(T agent) {
+
+        for (int i = 0; i < actions.length; i++) {
+            actions[i].accept(agent);
+        }
+
+    }
+
+    @Override
+    public String toString() {
+        return "Phase " + number + (guard == null ? " (unguarded)" : "")
+            + (activeSet == null ? "" : " (active set)")
+            + (blocking ? " (blocking)" : "") + (selfOnly ? " (self only)" : "") + ": " + String.join(", ", names);
+    }
+
+}
@@ -0,0 +1,224 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package multiThreads;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * PhaseRegistry - The execution phases declared by the annotations of an agent class
+ *
+ * <p>The registry scans the agent class and its superclasses once for
+ * {@link ThreadScheduledMethod} and {@link ThreadScheduledField} and groups them
+ * by phase number:</p>
+ * <ul>
+ *   <li>Any non-negative phase number is allowed, and phases run in ascending order.</li>
+ *   <li>A phase may have several methods. They are sorted by
+ *       {@link ThreadScheduledMethod#order()} and then by name, and run in one pass.</li>
+ *   <li>The guard field of a phase is optional. Without one, every agent takes part.</li>
+ *   <li>Consecutive phases whose methods all declare {@link Access#SELF} form a run
+ *       that can share one pass over the agents (see {@link #sweepEnd(int)}).</li>
+ * </ul>
+ *
+ * @param <T> the type of agents
+ *
+ * @author Bingkun Zhao
+ *
+ * @time Last update time: 16/10/2026
+ */
+final class PhaseRegistry<T> {
+
+    /** The phases in execution order. */
+    private final List<Phase<T>> phases;
+
+    /** The position of the last phase fused with each phase, itself if it runs alone. */
+    private final int[] sweepEnds;
+
+    /**
+     * Build the phases of an agent class.
+     *
+     * @param cl the class of agents
+     * @throws IllegalArgumentException if a phase number is negative, a phase has
+     *                                  more than one guard field, or an annotated
+     *                                  member has an unsupported signature
+     */
+    PhaseRegistry(Class<T> cl) {
+
+        TreeMap<Integer, List<Method>> methods = obtainMethods(cl);
+        TreeMap<Integer, Field> fields = obtainFields(cl);
+
+        phases = new ArrayList<>(methods.size());
+
+        for (Map.Entry<Integer, List<Method>> entry : methods.entrySet()) {
+
+            int number = entry.getKey();
+            List<Method> list = entry.getValue();
+            list.sort(Comparator.comparingInt((Method m) -> m.getAnnotation(ThreadScheduledMethod.class).order())
+                .thenComparing(Method::getName));
+
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            Consumer<T>[] actions = new Consumer[list.size()];
+            String[] names = new String[list.size()];
+            boolean blocking = false;
+            boolean selfOnly = true;
+            for (int i = 0; i < actions.length; i++) {
+                ThreadScheduledMethod anno = list.get(i).getAnnotation(ThreadScheduledMethod.class);
+                actions[i] = Invokers.action(list.get(i));
+                names[i] = list.get(i).getName();
+                blocking |= anno.blocking();
+                selfOnly &= anno.access() == Access.SELF;
+            }
+
+            Field field = fields.get(number);
+            Predicate<T> guard = field == null ? null : Invokers.guard(field);
+
+            phases.add(new Phase<>(number, guard, actions, names, blocking, selfOnly));
+
+        }
+
+        sweepEnds = new int[phases.size()];
+        for (int i = phases.size() - 1; i >= 0; i--) {
+            boolean joinsNext = i + 1 < phases.size() && phases.get(i).isFusible() && phases.get(i + 1).isFusible();
+            sweepEnds[i] = joinsNext ? sweepEnds[i + 1] : i;
+        }
+
+        for (Integer number : fields.keySet()) {
+            if (!methods.containsKey(number)) {
+                System.err.println("Warning: Thread scheduled field of phase " + number + " has no method");
+            }
+        }
+
+    }
+
+    /**
+     * Return the amount of phases.
+     *
+     * @return the amount of phases
+     */
+    int size() {
+        return phases.size();
+    }
+
+    /**
+     * Return a phase by its position in execution order.
+     *
+     * @param  index the position of the phase, from 0 to size() - 1
+     * @return       the phase
+     */
+    Phase<T> get(int index) {
+        return phases.get(index);
+    }
+
+    /**
+     * Return the last phase of the run of fusible phases that starts at a phase.
+     * The phases from index to the result can share one pass over the agents.
+     *
+     * @param  index the position of the phase
+     * @return       the position of the last phase of the run, index if it runs alone
+     */
+    int sweepEnd(int index) {
+        return sweepEnds[index];
+    }
+
+    /**
+     * Return a phase by its number.
+     *
+     * @param  number the phase number
+     * @return        the phase, or null if no method is scheduled in it
+     */
+    Phase<T> find(int number) {
+
+        for (Phase<T> phase : phases) {
+            if (phase.getNumber() == number) return phase;
+        }
+        return null;
+
+    }
+
+    /**
+     * Obtain the thread scheduled methods of agents, grouped by phase.
+     *
+     * @param  cl the class of agents
+     * @return    the methods of each phase
+     */
+    private static TreeMap<Integer, List<Method>> obtainMethods(Class<?> cl) {
+
+        TreeMap<Integer, List<Method>> methods = new TreeMap<>();
+        Set<String> seen = new HashSet<>(); // An overridden method is registered once, from the subclass.
+
+        for (Class<?> c = cl; c != null && c != Object.class; c = c.getSuperclass()) {
+
+            for (Method m : c.getDeclaredMethods()) {
+
+                ThreadScheduledMethod anno = m.getAnnotation(ThreadScheduledMethod.class);
+
+                if (anno != null && seen.add(m.getName())) {
+                    methods.computeIfAbsent(checkPhase(anno.phase(), m), k -> new ArrayList<>()).add(m);
+                }
+
+            }
+
+        }
+
+        return methods;
+
+    }
+
+    /**
+     * Obtain the thread scheduled fields of agents, one per phase.
+     *
+     * @param  cl the class of agents
+     * @return    the guard field of each phase
+     */
+    private static TreeMap<Integer, Field> obtainFields(Class<?> cl) {
+
+        TreeMap<Integer, Field> fields = new TreeMap<>();
+
+        for (Class<?> c = cl; c != null && c != Object.class; c = c.getSuperclass()) {
+
+            for (Field f : c.getDeclaredFields()) {
+
+                ThreadScheduledField anno = f.getAnnotation(ThreadScheduledField.class);
+
+                if (anno != null) {
+                    Field previous = fields.put(checkPhase(anno.phase(), f), f);
+                    if (previous != null) {
+                        throw new IllegalArgumentException("Phase " + anno.phase()
+                            + " has more than one thread scheduled field: " + previous.getName() + ", " + f.getName());
+                    }
+                }
+
+            }
+
+        }
+
+        return fields;
+
+    }
+
+    /**
+     * Check that a phase number is valid.
+     *
+     * @param  phase  the phase number
+     * @param  member the annotated member, for the error message
+     * @return        the phase number
+     * @throws IllegalArgumentException if the phase number is negative
+     */
+    private static int checkPhase(int phase, Object member) {
+
+        if (phase < 0) {
+            throw new IllegalArgumentException("Phase must be non-negative: " + member);
+        }
+        return phase;
+
+    }
+
+}
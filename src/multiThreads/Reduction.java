@@ -0,0 +1,102 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package multiThreads;
+
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Reduction - A per-tick aggregate over all agents, computed by the workers
+ *
+ * <p>Reductions registered with {@link AgentManager#registerReduction(Reduction)}
+ * run at the tick barrier, after the last phase and after the double buffers have
+ * been swapped, so they see the states every agent has published in the tick.
+ * Each worker sweeps its own share of the agents into a private partial result;
+ * the partials are merged in worker order on the calling thread once all workers
+ * have finished, and the merged result is handed to {@link #finish(Object)}.</p>
+ *
+ * <p>Partial results are created by the worker that fills them, so they are not
+ * allocated next to each other and the workers do not write to the same cache
+ * lines. Since the shares and the merge order only depend on the amount of agents
+ * and threads, the result does not depend on thread interleaving.</p>
+ *
+ * @param <T> the type of agents
+ * @param <A> the type of the mutable partial result
+ *
+ * @author Bingkun Zhao
+ *
+ * @time Last update time: 16/10/2026
+ */
+public interface Reduction<T, A> {
+
+    /**
+     * Create an empty partial result. Called once per worker and tick.
+     *
+     * @return the partial result
+     */
+    A newPartial();
+
+    /**
+     * Add one agent to a partial result.
+     *
+     * @param partial the partial result of the calling worker
+     * @param agent   the agent
+     */
+    void accumulate(A partial, T agent);
+
+    /**
+     * Add a partial result into another one.
+     *
+     * @param into    the result to update
+     * @param partial the partial result of a later worker
+     */
+    void merge(A into, A partial);
+
+    /**
+     * Receive the result of the tick, on the thread that steps the agent manager.
+     *
+     * @param result the merged result
+     */
+    void finish(A result);
+
+    /**
+     * Build a reduction from its functions.
+     *
+     * @param  <T>         the type of agents
+     * @param  <A>         the type of the partial result
+     * @param  newPartial  creates an empty partial result
+     * @param  accumulator adds one agent to a partial result
+     * @param  merger      adds the second partial result into the first one
+     * @param  finisher    receives the result of the tick
+     * @return             the reduction
+     */
+    static <T, A> Reduction<T, A> of(Supplier<A> newPartial, BiConsumer<A, ? super T> accumulator,
+                                     BiConsumer<A, A> merger, Consumer<? super A> finisher) {
+
+        return new Reduction<T, A>() {
+
+            @Override
+            public A newPartial() {
+                return newPartial.get();
+            }
+
+            @Override
+            public void accumulate(A partial, T agent) {
+                accumulator.accept(partial, agent);
+            }
+
+            @Override
+            public void merge(A into, A partial) {
+                merger.accept(into, partial);
+            }
+
+            @Override
+            public void finish(A result) {
+                finisher.accept(result);
+            }
+
+        };
+
+    }
+
+}
@@ -0,0 +1,36 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package multiThreads;
+
+/**
+ * Scheduling - How the agents of a phase are shared among the workers
+ *
+ * @author Bingkun Zhao
+ *
+ * @time Last update time: 16/10/2026
+ */
+public enum Scheduling {
+
+    /**
+     * The workers claim chunks of agents from a shared cursor until none are left.
+     * Balances uneven agents within the phase, but an agent lands on a different
+     * worker, and core, from one phase and tick to the next.
+     */
+    DYNAMIC,
+
+    /**
+     * Each worker owns a fixed range of agents in every phase of every tick, so the
+     * agents, their state and their neighbourhood stay in the caches of the same
+     * core. The ranges are only moved when the measured busy times of the workers
+     * differ by more than the rebalance threshold.
+     */
+    STATIC,
+
+    /**
+     * The phase is split recursively at the middle of the estimated cost of its
+     * agents (see {@link AgentManager#setCostEstimator(java.util.function.IntToLongFunction)})
+     * on a fork/join pool, and idle workers steal the pieces still queued. Suits
+     * power-law graphs, where a few hubs cost as much as many ordinary agents.
+     */
+    WORK_STEALING
+
+}
@@ -0,0 +1,381 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package multiThreads;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+
+/**
+ * StealingPool - Fork/join execution of phases split by the cost of the agents
+ *
+ * <p>A phase is split recursively at the middle of its estimated cost, not of its
+ * amount of agents, until a piece costs less than the leaf cost or holds a single
+ * agent. Idle workers steal the pieces that are still queued, so a few expensive
+ * agents do not leave the other workers waiting at the barrier.</p>
+ *
+ * <p>Each worker has a slot from 0 to {@code size() - 1}, like the workers of a
+ * {@link WorkerPool}, so the views and busy times of the agent manager can be
+ * kept per slot. The thread that runs a phase may execute pieces itself while it
+ * waits and then uses the extra slot {@code size()}. The pool never creates
+ * spare threads, so no two threads ever share a slot.</p>
+ *
+ * <p>The time a worker spends blocked on the stolen parts of a count is recorded
+ * per slot (see {@link #takeIdle(int)}), so it is not reported as busy time.</p>
+ *
+ * @author Bingkun Zhao
+ *
+ * @time Last update time: 16/10/2026
+ */
+final class StealingPool {
+
+    /**
+     * The work on a range of agents, run by the pieces of a phase.
+     */
+    interface RangeTask {
+
+        /**
+         * Run the phase on a range of agents.
+         *
+         * @param from the first position, inclusive
+         * @param to   the last position, exclusive
+         * @param slot the slot of the calling thread
+         */
+        void run(int from, int to, int slot);
+
+    }
+
+    /** The fork/join pool. */
+    private final ForkJoinPool pool;
+
+    /** The amount of worker threads. */
+    private final int numThread;
+
+    /** Which slots are held by a live worker. */
+    private final boolean[] taken;
+
+    /** The time each slot has spent blocked on stolen parts, in nanoseconds, at index slot * PAD. */
+    private final long[] idle;
+
+    /** The stride between the idle times of two slots, so they do not share a cache line. */
+    private static final int PAD = 8;
+
+    /**
+     * Construct a pool. The workers are started on demand.
+     *
+     * @param numThread the amount of worker threads
+     * @throws IllegalArgumentException if numThread is not positive
+     */
+    StealingPool(int numThread) {
+
+        if (numThread <= 0) {
+            throw new IllegalArgumentException("numThread must be positive: " + numThread);
+        }
+        this.numThread = numThread;
+        this.taken = new boolean[numThread];
+        this.idle = new long[(numThread + 1) * PAD];
+
+        // At most numThread workers, kept alive for the whole run, and no spare
+        // threads when a join has to wait, so each worker keeps its slot.
+        pool = new ForkJoinPool(numThread, this::newWorker, null, false,
+            0, numThread, 1, p -> true, 365, TimeUnit.DAYS);
+
+    }
+
+    /**
+     * Return the amount of workers.
+     *
+     * @return the amount of worker threads
+     */
+    int size() {
+        return numThread;
+    }
+
+    /**
+     * Return the slot of the calling thread.
+     *
+     * @return the slot of the worker, or size() for any other thread
+     */
+    int slot() {
+
+        Thread thread = Thread.currentThread();
+        if (thread instanceof Worker && ((Worker) thread).getPool() == pool) {
+            return ((Worker) thread).slot;
+        }
+        return numThread;
+
+    }
+
+    /**
+     * Run a task over the positions 0 to size - 1 and wait for it.
+     *
+     * @param costPrefix the cost of the agents before each position, of length size + 1,
+     *                   or null if every agent costs 1
+     * @param size       the amount of agents
+     * @param leafCost   the cost under which a range is not split any more
+     * @param task       the work on a range
+     * @throws IllegalStateException if the pool has been shut down
+     */
+    void execute(long[] costPrefix, int size, long leafCost, RangeTask task) {
+
+        if (pool.isShutdown()) {
+            throw new IllegalStateException("The stealing pool has been shut down");
+        }
+        pool.invoke(new Split(costPrefix, 0, size, Math.max(1, leafCost), task));
+
+    }
+
+    /**
+     * Count the positions of a range that pass a test. Called from a piece of a
+     * phase, a range longer than splitSize is counted in parts that idle workers
+     * can steal; otherwise it is counted in a loop.
+     *
+     * <p>The calling thread never runs other pieces of the phase while it waits
+     * for the parts, since it is in the middle of an agent whose view must stay
+     * bound. It blocks instead, through {@link ForkJoinPool#managedBlock}, so it
+     * leaves its core to the thieves rather than spinning, and the time it waits
+     * is recorded as idle.</p>
+     *
+     * @param  from      the first position, inclusive
+     * @param  to        the last position, exclusive
+     * @param  splitSize the length of a part
+     * @param  test      the test
+     * @return           the amount of positions that pass the test
+     */
+    int countMatches(int from, int to, int splitSize, IntPredicate test) {
+
+        if (to - from <= splitSize || slot() == numThread) {
+            return count(from, to, test);
+        }
+
+        int numParts = (to - from + splitSize - 1) / splitSize;
+        CountDownLatch done = new CountDownLatch(numParts - 1);
+        Count[] parts = new Count[numParts - 1];
+        for (int p = 1; p < numParts; p++) {
+            parts[p - 1] = new Count(from + p * splitSize, Math.min(to, from + (p + 1) * splitSize), test, done);
+            parts[p - 1].fork();
+        }
+
+        int result = count(from, from + splitSize, test);
+        for (int p = parts.length - 1; p >= 0; p--) { // Take back the parts nobody has stolen.
+            if (parts[p].tryUnfork()) {
+                parts[p].invoke();
+            }
+        }
+
+        if (done.getCount() > 0) { // Wait for the stolen parts without helping, see above.
+            long start = System.nanoTime();
+            awaitParts(done);
+            idle[slot() * PAD] += System.nanoTime() - start;
+        }
+        for (Count part : parts) {
+            result += part.result; // Published by the latch; join() could run other pieces.
+        }
+        return result;
+
+    }
+
+    /**
+     * Return the time a slot has spent blocked on stolen parts since the last call, and clear it.
+     * Only the thread that holds the slot calls it.
+     *
+     * @param  slot the slot
+     * @return      the idle time in nanoseconds
+     */
+    long takeIdle(int slot) {
+
+        long result = idle[slot * PAD];
+        idle[slot * PAD] = 0;
+        return result;
+
+    }
+
+    /**
+     * Block until the stolen parts of a count are done, letting the pool know.
+     *
+     * @param done the count of parts still running
+     */
+    private static void awaitParts(CountDownLatch done) {
+
+        boolean interrupted = false;
+        ForkJoinPool.ManagedBlocker blocker = new ForkJoinPool.ManagedBlocker() {
+            @Override
+            public boolean block() throws InterruptedException {
+                done.await();
+                return true;
+            }
+
+            @Override
+            public boolean isReleasable() {
+                return done.getCount() == 0;
+            }
+        };
+
+        while (true) {
+            try {
+                ForkJoinPool.managedBlock(blocker);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true; // The parts still run; wait for them before returning.
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+    }
+
+    /**
+     * Shutdown the worker threads.
+     */
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private static int count(int from, int to, IntPredicate test) {
+
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            if (test.test(i)) result++;
+        }
+        return result;
+
+    }
+
+    /**
+     * Create a worker with a free slot, or none if every slot is held.
+     */
+    private ForkJoinWorkerThread newWorker(ForkJoinPool owner) {
+
+        synchronized (taken) {
+            for (int slot = 0; slot < numThread; slot++) {
+                if (!taken[slot]) {
+                    taken[slot] = true;
+                    return new Worker(owner, slot);
+                }
+            }
+        }
+        return null;
+
+    }
+
+    /**
+     * A worker thread that holds a slot while it is alive.
+     */
+    private final class Worker extends ForkJoinWorkerThread {
+
+        private final int slot;
+
+        Worker(ForkJoinPool owner, int slot) {
+            super(owner);
+            this.slot = slot;
+            setName("AgentManager-stealer-" + slot);
+            setDaemon(true);
+        }
+
+        @Override
+        protected void onTermination(Throwable exception) {
+            synchronized (taken) {
+                taken[slot] = false;
+            }
+            super.onTermination(exception);
+        }
+
+    }
+
+    /**
+     * A range of agents, split at the middle of its cost until it is cheap enough.
+     */
+    private final class Split extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long[] costPrefix;
+        private final int from;
+        private final int to;
+        private final long leafCost;
+        private final RangeTask task;
+
+        Split(long[] costPrefix, int from, int to, long leafCost, RangeTask task) {
+            this.costPrefix = costPrefix;
+            this.from = from;
+            this.to = to;
+            this.leafCost = leafCost;
+            this.task = task;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (to - from <= 1 || cost(from, to) <= leafCost) {
+                task.run(from, to, slot());
+                return;
+            }
+
+            int middle = middle();
+            ForkJoinTask.invokeAll(new Split(costPrefix, from, middle, leafCost, task),
+                new Split(costPrefix, middle, to, leafCost, task));
+
+        }
+
+        private long cost(int lo, int hi) {
+            return costPrefix == null ? hi - lo : costPrefix[hi] - costPrefix[lo];
+        }
+
+        /**
+         * Return the position that cuts the cost of the range in half, strictly inside it.
+         */
+        private int middle() {
+
+            if (costPrefix == null) return (from + to) >>> 1;
+
+            long half = costPrefix[from] + (costPrefix[to] - costPrefix[from]) / 2;
+            int lo = from + 1;
+            int hi = to - 1;
+            while (lo < hi) { // The first position whose prefix reaches half.
+                int mid = (lo + hi) >>> 1;
+                if (costPrefix[mid] < half) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+
+        }
+
+    }
+
+    /**
+     * A part of a count, which counts down the latch of its count once it has a result.
+     */
+    private static final class Count extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final IntPredicate test;
+        private final CountDownLatch done;
+
+        private int result;
+
+        Count(int from, int to, IntPredicate test, CountDownLatch done) {
+            this.from = from;
+            this.to = to;
+            this.test = test;
+            this.done = done;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                result = count(from, to, test);
+            } finally {
+                done.countDown();
+            }
+        }
+
+    }
+
+}
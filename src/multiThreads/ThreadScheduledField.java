@@ -16,7 +16,8 @@ import java.lang.annotation.Target;
  * 
  * <p>Phases are executed in ascending numerical order (0, 1, 2, 3, ...).
  * During each phase, only agents with the corresponding field set to {@code true}
- * will execute their associated {@link ThreadScheduledMethod}.</p>
+ * will execute their associated {@link ThreadScheduledMethod}s. The field is
+ * optional and there can be at most one per phase.</p>
  * 
  * <p>Example usage:
  * <pre>
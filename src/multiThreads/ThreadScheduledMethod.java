@@ -40,10 +40,13 @@ import java.lang.annotation.Target;
  * </pre>
  * </p>
  * 
- * <p>Note: Methods annotated with { @ThreadScheduledMethod } should be
- * public and typically take no parameters. The execution of these methods
+ * <p>Note: Methods annotated with { @ThreadScheduledMethod } must be
+ * instance methods without parameters. The execution of these methods
  * is controlled by the corresponding {@link ThreadScheduledField} in the
- * same agent class.</p>
+ * same agent class, if there is one; a phase without a field is executed
+ * by every agent. Several methods may share a phase: they run one after
+ * another on each agent, in one pass over the agents, sorted by
+ * {@link #order()}.</p>
  * 
  * @author Zhongkui Ma - Original author
  * @author Bingkun Zhao - Enhancements and improvements
@@ -74,7 +77,7 @@ public @interface ThreadScheduledMethod {
      * <ul>
      *   <li>Phases are executed in ascending numerical order (0, 1, 2, 3, ...)</li>
      *   <li>Methods execute only if the corresponding {@link ThreadScheduledField} 
-     *       is {@code true} for the agent instance</li>
+     *       is {@code true} for the agent instance, or always if the phase has no field</li>
      *   <li>Multiple methods can be associated with the same phase</li>
      *   <li>An agent can have methods for multiple different phases</li>
      * </ul>
@@ -89,4 +92,38 @@ public @interface ThreadScheduledMethod {
      */
     public int phase();
 
+    /** 
+     * The position of this method among the methods of the same phase.
+     * Lower values run first; methods with the same value run in order of their names.
+     * 
+     * @return the order within the phase
+     */
+    public int order() default 0;
+
+    /** 
+     * Whether this method may block, e.g. on I/O, a local service or another agent.
+     * 
+     * <p>A phase with a blocking method runs each agent as its own task on a virtual
+     * thread (on Java 21 or later; on older Java, on a pool of platform threads),
+     * so a blocked agent only holds up itself instead of one of the few workers.
+     * The phase still ends when every agent has finished. Non-blocking phases should
+     * keep the default, since a task per agent costs more than a chunk of agents.</p>
+     * 
+     * @return true if the method may block
+     */
+    public boolean blocking() default false;
+
+    /** 
+     * What this method touches besides its own agent.
+     * 
+     * <p>Phases whose methods all declare {@link Access#SELF} and follow one another
+     * are run in one pass over the agents, without the barriers between them. A
+     * phase keeps its own pass if any of its methods declares more, or nothing,
+     * or is {@link #blocking()}. Random numbers stay keyed by the phase number an
+     * agent passes in, so fusing does not change them.</p>
+     * 
+     * @return the access of the method
+     */
+    public Access access() default Access.UNDECLARED;
+
 }
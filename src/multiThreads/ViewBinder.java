@@ -0,0 +1,40 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package multiThreads;
+
+/**
+ * ViewBinder - Creates flyweight views of agents whose state lives in arrays
+ *
+ * <p>With {@link AgentManager#useViews(int, ViewBinder)} the manager keeps no
+ * agent objects. The per-agent fields are kept by the model in primitive arrays
+ * indexed by the agent position (e.g. a {@link ByteDoubleBuffer} of states and
+ * {@link ActiveSet}s of phase flags), and each worker owns a single view object
+ * which is bound to one position after the other before the annotated methods
+ * are called on it.</p>
+ *
+ * <p>A view must therefore not keep anything per agent in its own fields apart
+ * from the bound position: they are shared by every agent the worker visits.</p>
+ *
+ * @param <T> the type of agents
+ *
+ * @author Bingkun Zhao
+ *
+ * @time Last update time: 16/10/2026
+ */
+public interface ViewBinder<T> {
+
+    /**
+     * Create an unbound view. Called once by each worker, on the worker itself.
+     *
+     * @return the view
+     */
+    T newView();
+
+    /**
+     * Point a view at an agent.
+     *
+     * @param view  the view
+     * @param index the position of the agent, from 0 to the amount of agents - 1
+     */
+    void bind(T view, int index);
+
+}
@@ -0,0 +1,154 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package multiThreads;
+
+import java.util.concurrent.Phaser;
+
+/**
+ * WorkerPool - Persistent worker threads synchronized by phase barriers
+ *
+ * <p>The workers are started once and stay alive for the whole simulation run.
+ * Each call to {@link #execute(Task)} hands the same task to every worker and
+ * blocks the calling thread on a {@link Phaser} until all workers have finished,
+ * so consecutive phases are separated by a real barrier instead of a busy wait
+ * on {@code ExecutorService.isTerminated()}.</p>
+ *
+ * <p>The calling thread (normally the Repast scheduler thread) is registered as
+ * an extra party of the barrier. One round of {@link #execute(Task)} advances
+ * the phaser twice: once to release the workers and once to wait for them.</p>
+ *
+ * @author Bingkun Zhao
+ *
+ * @time Last update time: 16/10/2026
+ */
+class WorkerPool {
+
+    /**
+     * The work executed by every worker during one phase.
+     */
+    interface Task {
+
+        /**
+         * Run the share of the phase that belongs to one worker.
+         *
+         * @param worker the index of the worker, from 0 to size() - 1
+         */
+        void run(int worker);
+
+    }
+
+    /** The worker threads, started in the constructor. */
+    private final Thread[] workers;
+
+    /** The barrier shared by the workers and the calling thread. */
+    private final Phaser barrier;
+
+    /** The task of the current phase, or null when the pool shuts down. */
+    private volatile Task task;
+
+    /** The first failure thrown by a worker in the current phase. */
+    private volatile Throwable failure;
+
+    /** Whether {@link #shutdown()} has been called. */
+    private volatile boolean terminated;
+
+    /**
+     * Construct and start a worker pool.
+     *
+     * @param numThread the amount of worker threads
+     * @throws IllegalArgumentException if numThread is not positive
+     */
+    WorkerPool(int numThread) {
+
+        if (numThread <= 0) {
+            throw new IllegalArgumentException("numThread must be positive: " + numThread);
+        }
+
+        barrier = new Phaser(numThread + 1); // The workers and the calling thread.
+        workers = new Thread[numThread];
+
+        for (int i = 0; i < numThread; i++) {
+            final int index = i;
+            workers[i] = new Thread(() -> work(index), "AgentManager-worker-" + i);
+            workers[i].setDaemon(true); // Never keep the JVM alive after the run.
+            workers[i].start();
+        }
+
+    }
+
+    /**
+     * Return the amount of workers.
+     *
+     * @return the amount of workers
+     */
+    int size() {
+        return workers.length;
+    }
+
+    /**
+     * Run a task on every worker and wait until all of them have finished.
+     *
+     * @param phaseTask the task of the phase
+     * @throws IllegalStateException if the pool is shut down or a worker failed
+     */
+    void execute(Task phaseTask) {
+
+        if (terminated) {
+            throw new IllegalStateException("Worker pool has been shut down");
+        }
+
+        task = phaseTask;
+        barrier.arriveAndAwaitAdvance(); // Release the workers.
+        barrier.arriveAndAwaitAdvance(); // Wait for the end of the phase.
+
+        Throwable error = failure;
+        if (error != null) {
+            failure = null;
+            throw new IllegalStateException("Worker failed during phase execution", error);
+        }
+
+    }
+
+    /**
+     * Stop the workers once they are idle. Calling it more than once has no effect.
+     */
+    void shutdown() {
+
+        if (terminated) return;
+        terminated = true;
+
+        task = null; // A null task tells the workers to leave their loop.
+        barrier.arriveAndDeregister();
+
+    }
+
+    /**
+     * The loop of one worker thread.
+     *
+     * @param index the index of the worker
+     */
+    private void work(int index) {
+
+        while (true) {
+
+            barrier.arriveAndAwaitAdvance(); // Wait for the next phase.
+
+            Task current = task;
+            if (current == null) break;
+
+            try {
+                current.run(index);
+            } catch (Throwable e) { // A dead worker would block the barrier forever.
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+
+            barrier.arriveAndAwaitAdvance(); // The phase barrier.
+
+        }
+
+        barrier.arriveAndDeregister();
+
+    }
+
+}
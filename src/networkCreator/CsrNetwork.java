@@ -0,0 +1,730 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package networkCreator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.ToIntFunction;
+
+import networkDataLoader.CsrGraph;
+import repast.simphony.random.RandomHelper;
+import repast.simphony.space.graph.EdgeCreator;
+import repast.simphony.space.graph.Network;
+import repast.simphony.space.graph.RepastEdge;
+import repast.simphony.space.projection.DefaultProjection;
+import repast.simphony.space.projection.ProjectionPredicate;
+
+/**
+ * CsrNetwork - A read-only network projection backed by primitive arrays
+ *
+ * <p>The default Repast network keeps a JUNG graph with an edge object and
+ * adjacency-map entries per edge. This projection answers the same queries
+ * straight from a {@link CsrGraph}. A directed network keeps the out-edges given
+ * by the graph and their transpose, the in-edges, built once. An undirected
+ * network keeps only the symmetric graph, with both directions of every edge,
+ * which is also the adjacency the agents scan (see {@link #getGraph()}), so the
+ * neighbours are held once. Nodes are held in an array indexed by
+ * their ID, so an agent is found from an ID with one read and an ID from an
+ * agent with the indexer.</p>
+ *
+ * <p>Edge {@code k} is the {@code k}-th target of the graph; in an undirected
+ * network, the edge between two nodes is the entry in the row of the lower ID,
+ * and the entry in the other row stands for the same edge. Edge objects are
+ * only created the first time one is asked for, for example by the display or
+ * a data set, and are then kept so the same edge is always the same object. The
+ * array that keeps them is itself allocated on the first request.</p>
+ *
+ * <p>The topology is fixed: adding or removing nodes or edges throws an
+ * {@link UnsupportedOperationException}, and no projection event is ever fired.
+ * In an undirected network, the neighbours, successors and predecessors of a
+ * node are all the nodes linked to it by an edge in either direction, and its
+ * degree is the amount of such nodes: two edges in opposite directions in the
+ * graph make one undirected edge.</p>
+ *
+ * <p>Add it to a context with {@code context.addProjection(network)} in place of
+ * a {@code NetworkBuilder}.</p>
+ *
+ * @param <T> the type of nodes
+ *
+ * @author Bingkun Zhao
+ *
+ * @time Last update time: 16/10/2026
+ */
+public final class CsrNetwork<T> extends DefaultProjection<T> implements Network<T> {
+
+    /** The out-edges of each node, or both directions of every edge if the network is undirected. */
+    private final CsrGraph out;
+
+    /** The start of the in-edges of each node, plus the amount of edges at the end, or null if undirected. */
+    private final int[] inOffsets;
+
+    /** The sources of the in-edges, node after node, sorted within a node, or null if undirected. */
+    private final int[] inSources;
+
+    /** The edge number of each in-edge, that is its position in the out-edges, or null if undirected. */
+    private final int[] inEdges;
+
+    /** The source of each edge, by edge number, or null if undirected. */
+    private final int[] edgeSources;
+
+    /** The amount of edges. */
+    private final int numEdges;
+
+    /** The nodes, indexed by ID. */
+    private final T[] nodes;
+
+    /** The ID of each node. */
+    private final ToIntFunction<T> indexer;
+
+    /** Whether the network is directed. */
+    private final boolean directed;
+
+    /** The edge objects created so far, by edge number, or null before the first one. */
+    private RepastEdge<T>[] edges;
+
+    /** The creator of the edge objects, or null to create plain {@link RepastEdge}s. */
+    private EdgeCreator<? extends RepastEdge<T>, T> edgeCreator;
+
+    /**
+     * Construct a network from a graph.
+     *
+     * @param name     the name of the projection
+     * @param graph    the edges, whose node IDs are indices in the array of nodes, with
+     *                 the targets of each node sorted and distinct, as built by
+     *                 {@link CsrGraph#fromEdges(int[], int[], int, int)} or the DataLoader;
+     *                 an undirected network keeps {@link CsrGraph#toUndirected()} of it
+     * @param nodes    the nodes, indexed by ID; the array is used as it is, not copied
+     * @param indexer  the ID of each node
+     * @param directed whether the network is directed
+     * @throws IllegalArgumentException if the graph and the nodes do not match, or
+     *                                  the targets of a node are not sorted
+     */
+    public CsrNetwork(String name, CsrGraph graph, T[] nodes, ToIntFunction<T> indexer, boolean directed) {
+
+        super(name);
+
+        if (graph.getNumNodes() > nodes.length) {
+            throw new IllegalArgumentException("Graph of " + graph.getNumNodes()
+                + " nodes for " + nodes.length + " network nodes");
+        }
+        for (int i = 0; i < nodes.length; i++) {
+            if (nodes[i] == null || indexer.applyAsInt(nodes[i]) != i) {
+                throw new IllegalArgumentException("Node at " + i + " is missing or has another ID");
+            }
+        }
+        for (int i = 0; i < graph.getNumNodes(); i++) {
+            for (int k = graph.getStart(i) + 1; k < graph.getEnd(i); k++) {
+                if (graph.getTarget(k) <= graph.getTarget(k - 1)) {
+                    throw new IllegalArgumentException("Targets of node " + i + " are not sorted and distinct");
+                }
+            }
+        }
+
+        this.nodes = nodes;
+        this.indexer = indexer;
+        this.directed = directed;
+
+        if (!directed) { // The symmetric rows answer every query; no transpose is needed.
+            this.out = padded(graph.toUndirected(), nodes.length);
+            int count = 0;
+            for (int i = 0; i < nodes.length; i++) {
+                for (int k = out.getStart(i); k < out.getEnd(i); k++) {
+                    if (out.getTarget(k) >= i) count++;
+                }
+            }
+            this.numEdges = count;
+            this.inOffsets = null;
+            this.inSources = null;
+            this.inEdges = null;
+            this.edgeSources = null;
+            return;
+        }
+
+        this.out = padded(graph, nodes.length);
+
+        // Transpose the out-edges into in-edges with a counting sort by target.
+        int numNodes = nodes.length;
+        int numEdges = out.getNumEdges();
+        this.numEdges = numEdges;
+        inOffsets = new int[numNodes + 1];
+        for (int k = 0; k < numEdges; k++) {
+            inOffsets[out.getTarget(k) + 1]++;
+        }
+        for (int i = 0; i < numNodes; i++) {
+            inOffsets[i + 1] += inOffsets[i];
+        }
+
+        inSources = new int[numEdges];
+        inEdges = new int[numEdges];
+        edgeSources = new int[numEdges];
+        int[] next = Arrays.copyOf(inOffsets, numNodes);
+        for (int i = 0; i < numNodes; i++) {
+            for (int k = out.getStart(i); k < out.getEnd(i); k++) {
+                int position = next[out.getTarget(k)]++;
+                inSources[position] = i; // Sources are visited in ascending order, so each row is sorted.
+                inEdges[position] = k;
+                edgeSources[k] = i;
+            }
+        }
+
+    }
+
+    @Override
+    public int size() {
+        return nodes.length;
+    }
+
+    @Override
+    public Iterable<T> getNodes() {
+        return Collections.unmodifiableList(Arrays.asList(nodes));
+    }
+
+    /**
+     * Return the node with an ID.
+     *
+     * @param  id the ID of the node
+     * @return    the node
+     */
+    public T getNode(int id) {
+        return nodes[id];
+    }
+
+    /**
+     * Return the graph of the out-edges, for code that walks the network by ID.
+     * In an undirected network, it holds both directions of every edge, so its
+     * rows are the neighbours of the nodes.
+     *
+     * @return the out-edges of each node, or the neighbours if the network is undirected
+     */
+    public CsrGraph getGraph() {
+        return out;
+    }
+
+    @Override
+    public boolean isDirected() {
+        return directed;
+    }
+
+    @Override
+    public Iterable<T> getAdjacent(T agent) {
+
+        int i = indexOf(agent);
+        if (i < 0) return Collections.emptyList();
+        return () -> new MergeIterator(i, true, directed);
+
+    }
+
+    @Override
+    public Iterable<T> getSuccessors(T agent) {
+
+        int i = indexOf(agent);
+        if (i < 0) return Collections.emptyList();
+        return () -> new MergeIterator(i, true, false);
+
+    }
+
+    @Override
+    public Iterable<T> getPredecessors(T agent) {
+
+        int i = indexOf(agent);
+        if (i < 0) return Collections.emptyList();
+        return () -> new MergeIterator(i, !directed, directed);
+
+    }
+
+    @Override
+    public T getRandomAdjacent(T agent) {
+        return randomOf(getAdjacent(agent));
+    }
+
+    @Override
+    public T getRandomSuccessor(T agent) {
+        return randomOf(getSuccessors(agent));
+    }
+
+    @Override
+    public T getRandomPredecessor(T agent) {
+        return randomOf(getPredecessors(agent));
+    }
+
+    @Override
+    public boolean isAdjacent(T first, T second) {
+
+        int a = indexOf(first);
+        int b = indexOf(second);
+        return a >= 0 && b >= 0 && (edgeNumber(a, b) >= 0 || directed && edgeNumber(b, a) >= 0);
+
+    }
+
+    /**
+     * Check whether the first node is a predecessor of the second one, that is,
+     * whether there is an edge from the first node to the second one.
+     */
+    @Override
+    public boolean isPredecessor(T first, T second) {
+        return directed ? findEdge(first, second) >= 0 : isAdjacent(first, second);
+    }
+
+    /**
+     * Check whether the first node is a successor of the second one, that is,
+     * whether there is an edge from the second node to the first one.
+     */
+    @Override
+    public boolean isSuccessor(T first, T second) {
+        return directed ? findEdge(second, first) >= 0 : isAdjacent(first, second);
+    }
+
+    @Override
+    public int getOutDegree(T agent) {
+
+        int i = indexOf(agent);
+        if (i < 0) return 0;
+        return out.getDegree(i);
+
+    }
+
+    @Override
+    public int getInDegree(T agent) {
+
+        int i = indexOf(agent);
+        if (i < 0) return 0;
+        return directed ? inDegree(i) : out.getDegree(i);
+
+    }
+
+    @Override
+    public int getDegree(T agent) {
+
+        int i = indexOf(agent);
+        if (i < 0) return 0;
+        return directed ? out.getDegree(i) + inDegree(i) : out.getDegree(i);
+
+    }
+
+    @Override
+    public int numEdges() {
+        return numEdges;
+    }
+
+    @Override
+    public RepastEdge<T> getEdge(T source, T target) {
+
+        int k = findEdge(source, target);
+        return k < 0 ? null : edge(k);
+
+    }
+
+    @Override
+    public Iterable<RepastEdge<T>> getEdges() {
+        if (!directed) return () -> new UndirectedEdgeIterator(-1);
+        return () -> new EdgeIterator(0, out.getNumEdges(), null, 0, 0);
+    }
+
+    @Override
+    public Iterable<RepastEdge<T>> getOutEdges(T agent) {
+
+        int i = indexOf(agent);
+        if (i < 0) return Collections.emptyList();
+        if (!directed) return getEdges(agent);
+        return () -> new EdgeIterator(out.getStart(i), out.getEnd(i), null, 0, 0);
+
+    }
+
+    @Override
+    public Iterable<RepastEdge<T>> getInEdges(T agent) {
+
+        int i = indexOf(agent);
+        if (i < 0) return Collections.emptyList();
+        if (!directed) return getEdges(agent);
+        return () -> new EdgeIterator(0, 0, inEdges, inOffsets[i], inOffsets[i + 1]);
+
+    }
+
+    @Override
+    public Iterable<RepastEdge<T>> getEdges(T agent) {
+
+        int i = indexOf(agent);
+        if (i < 0) return Collections.emptyList();
+        if (!directed) return () -> new UndirectedEdgeIterator(i);
+        return () -> new EdgeIterator(out.getStart(i), out.getEnd(i), inEdges, inOffsets[i], inOffsets[i + 1]);
+
+    }
+
+    @Override
+    public boolean containsEdge(RepastEdge<T> edge) {
+
+        if (edge == null) return false;
+        int k = findEdge(edge.getSource(), edge.getTarget());
+        return k >= 0 && edge(k) == edge;
+
+    }
+
+    @Override
+    public void setEdgeCreator(EdgeCreator<? extends RepastEdge<T>, T> edgeCreator) {
+        this.edgeCreator = edgeCreator;
+    }
+
+    @Override
+    public EdgeCreator<? extends RepastEdge<T>, T> getEdgeCreator() {
+        return edgeCreator;
+    }
+
+    @Override
+    public boolean evaluate(ProjectionPredicate predicate) {
+        return predicate.applyRule(this);
+    }
+
+    @Override
+    public RepastEdge<T> addEdge(T source, T target) {
+        throw readOnly();
+    }
+
+    @Override
+    public RepastEdge<T> addEdge(T source, T target, double weight) {
+        throw readOnly();
+    }
+
+    @Override
+    public RepastEdge<T> addEdge(RepastEdge<T> edge) {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeEdge(RepastEdge<T> edge) {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeEdges() {
+        throw readOnly();
+    }
+
+    @Override
+    public void addVertex(T vertex) {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeVertex(T vertex) {
+        throw readOnly();
+    }
+
+    /**
+     * Return the ID of a node of the network.
+     *
+     * @param  agent the node
+     * @return       its ID, or -1 if it is not a node of the network
+     */
+    private int indexOf(T agent) {
+
+        if (agent == null) return -1;
+        int i = indexer.applyAsInt(agent);
+        return i >= 0 && i < nodes.length && nodes[i] == agent ? i : -1;
+
+    }
+
+    /**
+     * Return the edge number of the edge between two nodes. In an undirected
+     * network the order of the nodes does not matter.
+     *
+     * @param  source the source node
+     * @param  target the target node
+     * @return        the edge number, or -1 if there is no such edge
+     */
+    private int findEdge(T source, T target) {
+
+        int a = indexOf(source);
+        int b = indexOf(target);
+        if (a < 0 || b < 0) return -1;
+        return directed ? edgeNumber(a, b) : edgeNumber(Math.min(a, b), Math.max(a, b));
+
+    }
+
+    /**
+     * Return the edge number of the edge from one ID to another.
+     *
+     * @param  a the ID of the source
+     * @param  b the ID of the target
+     * @return   the edge number, or -1 if there is no such edge
+     */
+    private int edgeNumber(int a, int b) {
+
+        int start = out.getStart(a);
+        int end = out.getEnd(a);
+
+        int low = start;
+        int high = end - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int t = out.getTarget(mid);
+            if (t < b) low = mid + 1;
+            else if (t > b) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+
+    }
+
+    /**
+     * Return the node whose row holds an edge number, by binary search over the rows.
+     *
+     * @param  k the edge number
+     * @return   the ID of the node
+     */
+    private int sourceOf(int k) {
+
+        int low = 0;
+        int high = nodes.length - 1;
+        while (low < high) { // The last node whose row starts at or before k.
+            int mid = (low + high + 1) >>> 1;
+            if (out.getStart(mid) <= k) low = mid;
+            else high = mid - 1;
+        }
+        while (out.getEnd(low) <= k) low++; // Skip the empty rows that start at k.
+        return low;
+
+    }
+
+    /**
+     * Return the amount of in-edges of a node.
+     *
+     * @param  i the ID of the node
+     * @return   its in-degree
+     */
+    private int inDegree(int i) {
+        return inOffsets[i + 1] - inOffsets[i];
+    }
+
+    /**
+     * Return the object of an edge, creating it on first use.
+     *
+     * @param  k the edge number
+     * @return   the edge
+     */
+    private synchronized RepastEdge<T> edge(int k) {
+
+        if (edges == null) {
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            RepastEdge<T>[] created = new RepastEdge[out.getNumEdges()];
+            edges = created;
+        }
+
+        RepastEdge<T> edge = edges[k];
+        if (edge == null) {
+            T source = nodes[directed ? edgeSources[k] : sourceOf(k)];
+            T target = nodes[out.getTarget(k)];
+            edge = edgeCreator == null
+                ? new RepastEdge<>(source, target, directed)
+                : edgeCreator.createEdge(source, target, directed, 1);
+            edges[k] = edge;
+        }
+        return edge;
+
+    }
+
+    /**
+     * Pick one node at random.
+     *
+     * @param  candidates the nodes to pick from
+     * @return            one of them, or null if there is none
+     */
+    private T randomOf(Iterable<T> candidates) {
+
+        List<T> list = new ArrayList<>();
+        for (T node : candidates) {
+            list.add(node);
+        }
+        return list.isEmpty() ? null : list.get(RandomHelper.nextIntFromTo(0, list.size() - 1));
+
+    }
+
+    /**
+     * Return an exception for a change of the topology.
+     *
+     * @return the exception
+     */
+    private UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Network " + getName() + " is read-only");
+    }
+
+    /**
+     * Return a graph with at least some amount of nodes, adding nodes without edges.
+     *
+     * @param  graph    the graph
+     * @param  numNodes the amount of nodes
+     * @return          the graph itself if it is large enough, or a padded copy
+     */
+    private static CsrGraph padded(CsrGraph graph, int numNodes) {
+
+        if (graph.getNumNodes() == numNodes) return graph;
+
+        int[] offsets = new int[numNodes + 1];
+        int[] targets = new int[graph.getNumEdges()];
+        for (int i = 0; i < graph.getNumNodes(); i++) {
+            offsets[i + 1] = graph.getEnd(i);
+        }
+        Arrays.fill(offsets, graph.getNumNodes() + 1, numNodes + 1, graph.getNumEdges());
+        for (int k = 0; k < targets.length; k++) {
+            targets[k] = graph.getTarget(k);
+        }
+        return new CsrGraph(offsets, targets);
+
+    }
+
+    /**
+     * Iterates the distinct nodes of the out-row and the in-row of a node, both
+     * sorted, merging them like the two halves of a merge sort.
+     */
+    private final class MergeIterator implements Iterator<T> {
+
+        private int k;
+        private final int kEnd;
+        private int j;
+        private final int jEnd;
+        private int last = -1;
+
+        MergeIterator(int node, boolean useOut, boolean useIn) {
+
+            k = useOut ? out.getStart(node) : 0;
+            kEnd = useOut ? out.getEnd(node) : 0;
+            j = useIn ? inOffsets[node] : 0;
+            jEnd = useIn ? inOffsets[node + 1] : 0;
+            skipRepeats();
+
+        }
+
+        @Override
+        public boolean hasNext() {
+            return k < kEnd || j < jEnd;
+        }
+
+        @Override
+        public T next() {
+
+            if (!hasNext()) throw new NoSuchElementException();
+
+            int a = k < kEnd ? out.getTarget(k) : Integer.MAX_VALUE;
+            int b = j < jEnd ? inSources[j] : Integer.MAX_VALUE;
+            last = Math.min(a, b);
+            skipRepeats();
+            return nodes[last];
+
+        }
+
+        /**
+         * Move both rows past the node returned last.
+         */
+        private void skipRepeats() {
+
+            while (k < kEnd && out.getTarget(k) <= last) k++;
+            while (j < jEnd && inSources[j] <= last) j++;
+
+        }
+
+    }
+
+    /**
+     * Iterates the edges of an undirected network, each once, or the edges of one
+     * node. An entry of a row stands for its edge when its target is not below the
+     * node; otherwise the edge is the entry in the row of the target.
+     */
+    private final class UndirectedEdgeIterator implements Iterator<RepastEdge<T>> {
+
+        /** The node whose edges are iterated, or -1 for every edge. */
+        private final int node;
+
+        /** The node whose row holds position k. */
+        private int source;
+
+        private int k;
+        private final int kEnd;
+
+        UndirectedEdgeIterator(int node) {
+
+            this.node = node;
+            if (node >= 0) {
+                source = node;
+                k = out.getStart(node);
+                kEnd = out.getEnd(node);
+            } else {
+                k = 0;
+                kEnd = out.getNumEdges();
+                skipMirrors();
+            }
+
+        }
+
+        @Override
+        public boolean hasNext() {
+            return k < kEnd;
+        }
+
+        @Override
+        public RepastEdge<T> next() {
+
+            if (!hasNext()) throw new NoSuchElementException();
+
+            int target = out.getTarget(k);
+            RepastEdge<T> edge = edge(target >= source ? k : edgeNumber(target, source));
+            k++;
+            if (node < 0) skipMirrors();
+            return edge;
+
+        }
+
+        /**
+         * Move past the entries that stand for an edge already given by a lower row.
+         */
+        private void skipMirrors() {
+
+            while (k < kEnd) {
+                while (k >= out.getEnd(source)) source++;
+                if (out.getTarget(k) >= source) return;
+                k++;
+            }
+
+        }
+
+    }
+
+    /**
+     * Iterates a range of out-edges, then a range of in-edges by edge number.
+     */
+    private final class EdgeIterator implements Iterator<RepastEdge<T>> {
+
+        private int k;
+        private final int kEnd;
+        private final int[] numbers;
+        private int j;
+        private final int jEnd;
+
+        EdgeIterator(int k, int kEnd, int[] numbers, int j, int jEnd) {
+
+            this.k = k;
+            this.kEnd = kEnd;
+            this.numbers = numbers;
+            this.j = j;
+            this.jEnd = jEnd;
+
+        }
+
+        @Override
+        public boolean hasNext() {
+            return k < kEnd || j < jEnd;
+        }
+
+        @Override
+        public RepastEdge<T> next() {
+
+            if (k < kEnd) return edge(k++);
+            if (j < jEnd) return edge(numbers[j++]);
+            throw new NoSuchElementException();
+
+        }
+
+    }
+
+}
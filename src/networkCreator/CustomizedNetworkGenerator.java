@@ -2,12 +2,11 @@
 package networkCreator;
 
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Set;
+import java.util.function.ToIntFunction;
 
-import org.apache.commons.collections15.BidiMap;
+import networkDataLoader.CsrGraph;
 
-import edu.uci.ics.jung.algorithms.util.Indexer;
 import repast.simphony.context.space.graph.AbstractGenerator;
 import repast.simphony.space.graph.Network;
 
@@ -15,47 +14,83 @@ import repast.simphony.space.graph.Network;
  * This generator is to generate a network according to a edge map.
  * <p>
  * References: repast.simphony.context.space.graph.WattsBetaSmallWorldGenerator
- * <p>
- * Last edited time: 07/8/2025
  *
  * @author  Zhongkui Ma (Original Author)
  * @author  Bingkun Zhao (Updater and Modifier)
  *
+ * @time Last update time: 16/10/2026
+ *
  * @version 2.0.0 (Modified version)
  *
  * @see     repast.simphony.context.space.graph.WattsBetaSmallWorldGenerator
  */
 public class CustomizedNetworkGenerator<T> extends AbstractGenerator<T> {
 
-	/** The edge map representing network connections: source node ID -> set of target node IDs */
-    private HashMap<Integer, Set<Integer>> edgeMap;
+	/** The graph representing network connections: the targets of each source node ID */
+    private CsrGraph graph;
 
     /** Whether the generated edges will be symmetrical (only affects directed networks) */
     private boolean isSymmetrical;
 
     private int numNodes;
 
+    /** The ID of each node, or null to number the nodes in the order the network returns them */
+    private ToIntFunction<T> indexer;
+
     /**
      * Constructs the customized network generator.
      *
-     * @param edgeMap     the edgeMap of edges of the network, where key is source node ID 
-     *                    and value is set of connected target node IDs
+     * @param graph       the graph of the network, in compressed sparse row form,
+     *                    whose node IDs are the indices of the nodes
      * @param numAgent    the expected number of agents/nodes in the network
      * @param symmetrical whether or not the generated edges will be symmetrical. 
      *                    This has no effect on a non-directed network. For directed networks,
      *                    if symmetrical is true, bidirectional edges will be created.
      */
-    public CustomizedNetworkGenerator(HashMap<Integer, Set<Integer>> edgeMap, int numAgent,
-        boolean symmetrical) {
+    public CustomizedNetworkGenerator(CsrGraph graph, int numAgent, boolean symmetrical) {
+
+        this(graph, numAgent, symmetrical, null);
+
+    }
+
+    /**
+     * Constructs the customized network generator with an explicit ID for each node.
+     *
+     * @param graph       the graph of the network, in compressed sparse row form
+     * @param numAgent    the expected number of agents/nodes in the network
+     * @param symmetrical whether or not the generated edges will be symmetrical. 
+     * @param indexer     the ID of each node in the graph, from 0 to numAgent - 1
+     *                    (e.g. {@code Agent::getID}), or null to number the nodes
+     *                    in the order the network returns them
+     */
+    public CustomizedNetworkGenerator(CsrGraph graph, int numAgent, boolean symmetrical,
+        ToIntFunction<T> indexer) {
 
         this.isSymmetrical = symmetrical;
-        this.edgeMap = edgeMap;
+        this.graph = graph;
         this.numNodes = numAgent;
+        this.indexer = indexer;
 
     }
 
     /**
-     * Generates a network from the provided edge map.
+     * Constructs the customized network generator from an edge map.
+     *
+     * @param edgeMap     the edgeMap of edges of the network, where key is source node ID 
+     *                    and value is set of connected target node IDs
+     * @param numAgent    the expected number of agents/nodes in the network
+     * @param symmetrical whether or not the generated edges will be symmetrical. 
+     * @see   #CustomizedNetworkGenerator(CsrGraph, int, boolean)
+     */
+    public CustomizedNetworkGenerator(HashMap<Integer, Set<Integer>> edgeMap, int numAgent,
+        boolean symmetrical) {
+
+        this(CsrGraph.fromEdgeMap(edgeMap, numAgent), numAgent, symmetrical);
+
+    }
+
+    /**
+     * Generates a network from the provided graph.
      * <p>
      * The undirected networks and the directed works use the same method, the differences depending
      * on the connection information of the data file. <br>
@@ -68,10 +103,17 @@ public class CustomizedNetworkGenerator<T> extends AbstractGenerator<T> {
      * Modified by Bingkun Zhao: Fixed node count validation logic, added proper error handling,
      * improved null checking, and added edge counting for debugging purposes.
      * </p>
+     * <p>
+     * The endpoints of the edges are found in an array of nodes indexed by ID, filled in one
+     * pass over the network, so the mapping between IDs and nodes is deterministic and costs
+     * no hashing. Repast networks offer no way to reserve room or add edges in bulk, so the
+     * edges are still added one by one.
+     * </p>
      *
      * @param network the network to be populated with edges
      * @return the populated network model
-     * @throws IllegalArgumentException if the node count doesn't match expected size
+     * @throws IllegalArgumentException if the node count doesn't match expected size,
+     *                                  or two nodes have the same ID
      */
     @Override
     public Network<T> createNetwork(Network<T> network) {
@@ -83,28 +125,41 @@ public class CustomizedNetworkGenerator<T> extends AbstractGenerator<T> {
             throw new IllegalArgumentException(errorMsg);
         }
         
-        // Collect all nodes from the network into a set
-        Set<T> set = new HashSet<>();
-        for (T node : network.getNodes())
-            set.add(node);
-        
-        // Create bidirectional mapping between node objects and their integer indices
-        BidiMap<T, Integer> map = Indexer.create(set);
+        // Place each node at its ID, so an endpoint is found with one array read
+        @SuppressWarnings("unchecked")
+        T[] nodes = (T[]) new Object[numNodes];
+        int position = 0;
+        for (T node : network.getNodes()) {
+            int index = indexer == null ? position : indexer.applyAsInt(node);
+            position++;
+            if (index < 0 || index >= numNodes) {
+                throw new IllegalArgumentException("Node ID " + index + " out of range [0, " + numNodes + ")");
+            }
+            if (nodes[index] != null) {
+                throw new IllegalArgumentException("Two nodes with the same ID " + index);
+            }
+            nodes[index] = node;
+        }
         boolean isDirected = network.isDirected();
         
-        // Build the network by creating edges according to the edgeMap
+        // Build the network by creating edges according to the graph
         int edgesAdded = 0;
-        for (Integer sourceIndex : edgeMap.keySet()) {
-            T source = map.getKey(sourceIndex);
-            Set<Integer> targetSet = edgeMap.get(sourceIndex);
+        int numSources = Math.min(graph.getNumNodes(), numNodes);
+        for (int sourceIndex = 0; sourceIndex < numSources; sourceIndex++) {
+            if (graph.getDegree(sourceIndex) == 0) {
+                continue;
+            }
+
+            T source = nodes[sourceIndex];
 
             if (source == null) {
                 System.err.println("Warning: Source node with index " + sourceIndex + " not found");
                 continue;
             }
 
-            for (Integer targetIndex : targetSet) {
-                T target = map.getKey(targetIndex);
+            for (int k = graph.getStart(sourceIndex); k < graph.getEnd(sourceIndex); k++) {
+                int targetIndex = graph.getTarget(k);
+                T target = targetIndex < numNodes ? nodes[targetIndex] : null;
                 
                 // Skip if target node doesn't exist in the network
                 if (target == null) {
@@ -113,16 +168,14 @@ public class CustomizedNetworkGenerator<T> extends AbstractGenerator<T> {
                 }
                 
                 // Add the edge from source to target
-                if (source != null && target != null) {
-                    network.addEdge(source, target);
+                network.addEdge(source, target);
+                edgesAdded++;
+                
+                // For directed symmetrical networks, also add the reverse edge
+                // This creates bidirectional connections in directed networks
+                if (isDirected && isSymmetrical) {
+                    network.addEdge(target, source);
                     edgesAdded++;
-                    
-                    // For directed symmetrical networks, also add the reverse edge
-                    // This creates bidirectional connections in directed networks
-                    if (isDirected && isSymmetrical) {
-                        network.addEdge(target, source);
-                        edgesAdded++;
-                    }
                 }
             }
         }
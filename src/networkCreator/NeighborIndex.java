@@ -0,0 +1,165 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package networkCreator;
+
+import java.util.function.ToIntFunction;
+
+import networkDataLoader.CsrGraph;
+import repast.simphony.space.graph.Network;
+import repast.simphony.space.projection.ProjectionEvent;
+import repast.simphony.space.projection.ProjectionListener;
+
+/**
+ * NeighborIndex - A cached adjacency of the nodes of a network
+ *
+ * <p>The index flattens the adjacency of a Repast network into a {@link CsrGraph},
+ * so the neighbours of a node can be walked by index without going through the
+ * context, the projection or the JUNG graph, and without allocating. Nodes are identified by a dense index in
+ * {@code [0, numNodes)} given by the indexer, usually the ID of the agent.</p>
+ *
+ * <p>The index listens to the network and is marked stale when a node or an
+ * edge is added or removed. It is rebuilt the next time {@link #current()} is
+ * called, so a static network is scanned exactly once. A rebuild reads the
+ * network, so the network should only change between ticks.</p>
+ *
+ * @param <T> the type of nodes
+ *
+ * @author Bingkun Zhao
+ *
+ * @time Last update time: 16/10/2026
+ */
+public final class NeighborIndex<T> implements ProjectionListener<T> {
+
+    /** The network to index. */
+    private final Network<T> network;
+
+    /** The dense index of each node. */
+    private final ToIntFunction<T> indexer;
+
+    /** The amount of nodes, one more than the largest index. */
+    private final int numNodes;
+
+    /** The adjacency of the last build. Replaced as a whole, never modified. */
+    private volatile CsrGraph adjacency;
+
+    /** Whether the network has changed since the last build. */
+    private volatile boolean stale;
+
+    /**
+     * Build the index of a network and start listening to its changes.
+     *
+     * @param network  the network to index
+     * @param indexer  the dense index of each node
+     * @param numNodes the amount of nodes, one more than the largest index
+     * @throws IllegalArgumentException if a node has an index out of range
+     */
+    public NeighborIndex(Network<T> network, ToIntFunction<T> indexer, int numNodes) {
+
+        this.network = network;
+        this.indexer = indexer;
+        this.numNodes = numNodes;
+        this.adjacency = build();
+        network.addProjectionListener(this);
+
+    }
+
+    /**
+     * Return the adjacency of the current network, rebuilding it first if the
+     * network has changed. The returned graph never changes, so it may be kept
+     * for the whole of a phase. Rows keep the order and multiplicity of the
+     * adjacency reported by the network.
+     *
+     * @return the adjacency, indexed by node
+     */
+    public CsrGraph current() {
+
+        if (stale) {
+            synchronized (this) {
+                if (stale) {
+                    stale = false; // Cleared first, so a change during the build marks it stale again.
+                    adjacency = build();
+                }
+            }
+        }
+        return adjacency;
+
+    }
+
+    /**
+     * Stop listening to the network.
+     */
+    public void detach() {
+        network.removeProjectionListener(this);
+    }
+
+    @Override
+    public void projectionEventOccurred(ProjectionEvent<T> evt) {
+
+        switch (evt.getType()) {
+            case OBJECT_ADDED:
+            case OBJECT_REMOVED:
+            case EDGE_ADDED:
+            case EDGE_REMOVED:
+                stale = true;
+                break;
+            default:
+                break;
+        }
+
+    }
+
+    /**
+     * Scan the network into compressed sparse row arrays.
+     *
+     * @return the adjacency of the network
+     * @throws IllegalArgumentException if a node has an index out of range
+     */
+    private CsrGraph build() {
+
+        int[] offsets = new int[numNodes + 1];
+
+        // Count the neighbours of each node.
+        for (T node : network.getNodes()) {
+            int index = indexOf(node);
+            for (T neighbor : network.getAdjacent(node)) {
+                indexOf(neighbor);
+                offsets[index + 1]++;
+            }
+        }
+
+        for (int i = 0; i < numNodes; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        // Fill the neighbours of each node.
+        int[] targets = new int[offsets[numNodes]];
+        int[] next = new int[numNodes];
+        System.arraycopy(offsets, 0, next, 0, numNodes);
+        for (T node : network.getNodes()) {
+            int index = indexOf(node);
+            for (T neighbor : network.getAdjacent(node)) {
+                targets[next[index]++] = indexOf(neighbor);
+            }
+        }
+
+        return new CsrGraph(offsets, targets);
+
+    }
+
+    /**
+     * Return the dense index of a node.
+     *
+     * @param  node the node
+     * @return      the index of the node
+     * @throws IllegalArgumentException if the index is out of range
+     */
+    private int indexOf(T node) {
+
+        int index = indexer.applyAsInt(node);
+        if (index < 0 || index >= numNodes) {
+            throw new IllegalArgumentException("Node index " + index + " out of range [0, " + numNodes + ")");
+        }
+        return index;
+
+    }
+
+}
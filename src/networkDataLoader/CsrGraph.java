@@ -0,0 +1,385 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package networkDataLoader;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * CsrGraph - A graph in compressed sparse row form
+ *
+ * <p>The targets of all edges are stored in one {@code int[]}, sorted by source,
+ * and {@code offsets[i]} is the position of the first edge of node {@code i}, so
+ * the neighbours of node {@code i} are {@code getTarget(k)} for {@code k} from
+ * {@code getStart(i)} to {@code getEnd(i) - 1}. This takes 4 bytes per edge and
+ * 4 bytes per node, with no boxing and no per-edge objects.</p>
+ *
+ * <p>The rows built by {@link #fromEdges} are sorted by target and hold no
+ * duplicate edges. A graph never changes once built.</p>
+ *
+ * @author Bingkun Zhao
+ *
+ * @time Last update time: 16/10/2026
+ */
+public final class CsrGraph {
+
+    /** The most edges a graph can hold: the largest array the JVM reliably allocates. */
+    static final int MAX_EDGES = Integer.MAX_VALUE - 8;
+
+    /** The start of the edges of each node, plus the amount of edges at the end. */
+    private final int[] offsets;
+
+    /** The targets of the edges, node after node. */
+    private final int[] targets;
+
+    /**
+     * Construct a graph from its arrays. The arrays are used as they are, not copied.
+     *
+     * @param offsets the start of the edges of each node, followed by the amount of edges
+     * @param targets the targets of the edges, sorted by source
+     * @throws IllegalArgumentException if the arrays do not match
+     */
+    public CsrGraph(int[] offsets, int[] targets) {
+
+        if (offsets.length == 0 || offsets[0] != 0 || offsets[offsets.length - 1] != targets.length) {
+            throw new IllegalArgumentException("Offsets do not match the " + targets.length + " targets");
+        }
+        this.offsets = offsets;
+        this.targets = targets;
+
+    }
+
+    /**
+     * Build a graph from a list of edges. Duplicate edges are kept once.
+     *
+     * @param  sources  the sources of the edges
+     * @param  targets  the targets of the edges
+     * @param  numEdges the amount of edges, starting from the beginning of both arrays
+     * @param  numNodes the amount of nodes, one more than the largest node ID
+     * @return          the graph
+     * @throws IllegalArgumentException if a node ID is out of range
+     */
+    public static CsrGraph fromEdges(int[] sources, int[] targets, int numEdges, int numNodes) {
+
+        int[] offsets = new int[numNodes + 1];
+
+        // Count the edges of each source.
+        for (int e = 0; e < numEdges; e++) {
+            checkNode(sources[e], numNodes);
+            checkNode(targets[e], numNodes);
+            offsets[sources[e] + 1]++;
+        }
+        for (int i = 0; i < numNodes; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        // Place each edge in the row of its source.
+        int[] sorted = new int[numEdges];
+        int[] next = Arrays.copyOf(offsets, numNodes);
+        for (int e = 0; e < numEdges; e++) {
+            sorted[next[sources[e]]++] = targets[e];
+        }
+
+        return compact(offsets, sorted);
+
+    }
+
+    /**
+     * Build a graph from edge buffers filled in parallel, with a parallel
+     * counting sort by source. Duplicate edges are kept once.
+     *
+     * <p>Each buffer is counted and scattered by its own task, into its own
+     * count array, so no row counter is shared between tasks even for hubs. A
+     * prefix sum over the rows and the buffers turns the counts into the position
+     * where each buffer writes in each row. The rows are then
+     * split into tasks of about the same amount of edges to be sorted and
+     * deduplicated. Edges land in a row in any order, but the sort makes the
+     * result the same as {@link #fromEdges(int[], int[], int, int)}.</p>
+     *
+     * @param  parts    the edge buffers
+     * @param  numNodes the amount of nodes, one more than the largest node ID
+     * @param  pool     the thread pool
+     * @param  numTasks the amount of tasks to split the rows into
+     * @return          the graph
+     * @throws IllegalArgumentException if a node ID is out of range
+     */
+    static CsrGraph fromEdges(EdgeBuffer[] parts, int numNodes, ExecutorService pool, int numTasks) {
+
+        // Count the edges of each source, per buffer.
+        int[][] cursors = new int[parts.length][];
+        ParallelTasks.run(pool, parts.length, t -> {
+            int[] counts = new int[numNodes];
+            int[] sources = parts[t].getSources();
+            int[] targets = parts[t].getTargets();
+            for (int e = 0, size = parts[t].size(); e < size; e++) {
+                checkNode(sources[e], numNodes);
+                checkNode(targets[e], numNodes);
+                counts[sources[e]]++;
+            }
+            cursors[t] = counts;
+        });
+
+        // Turn the counts into the first position of each buffer in each row, in place.
+        int[] offsets = new int[numNodes + 1];
+        long position = 0;
+        for (int i = 0; i < numNodes; i++) {
+            offsets[i] = (int) position;
+            for (int[] cursor : cursors) {
+                int count = cursor[i];
+                cursor[i] = (int) position;
+                position += count;
+            }
+            if (position > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("More than " + Integer.MAX_VALUE + " edges");
+            }
+        }
+        offsets[numNodes] = (int) position;
+
+        // Place each edge in the row of its source; each buffer writes its own part of the row.
+        int[] sorted = new int[offsets[numNodes]];
+        ParallelTasks.run(pool, parts.length, t -> {
+            int[] cursor = cursors[t];
+            int[] sources = parts[t].getSources();
+            int[] targets = parts[t].getTargets();
+            for (int e = 0, size = parts[t].size(); e < size; e++) {
+                sorted[cursor[sources[e]]++] = targets[e];
+            }
+            cursors[t] = null;
+        });
+
+        // Split the rows by amount of edges, so a hub does not keep one task busy alone.
+        int[] bounds = new int[numTasks + 1];
+        for (int t = 1; t < numTasks; t++) {
+            bounds[t] = rowAt(offsets, (int) ((long) sorted.length * t / numTasks));
+        }
+        bounds[numTasks] = numNodes;
+
+        // Sort each row and count its distinct targets.
+        int[] unique = new int[numNodes + 1];
+        ParallelTasks.run(pool, numTasks, t -> {
+            for (int i = bounds[t]; i < bounds[t + 1]; i++) {
+                Arrays.sort(sorted, offsets[i], offsets[i + 1]);
+                int count = 0;
+                for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                    if (k == offsets[i] || sorted[k] != sorted[k - 1]) count++;
+                }
+                unique[i + 1] = count;
+            }
+        });
+
+        for (int i = 0; i < numNodes; i++) {
+            unique[i + 1] += unique[i];
+        }
+
+        // Copy the distinct targets.
+        int[] targets = new int[unique[numNodes]];
+        ParallelTasks.run(pool, numTasks, t -> {
+            for (int i = bounds[t]; i < bounds[t + 1]; i++) {
+                int write = unique[i];
+                for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                    if (k == offsets[i] || sorted[k] != sorted[k - 1]) targets[write++] = sorted[k];
+                }
+            }
+        });
+
+        return new CsrGraph(unique, targets);
+
+    }
+
+    /**
+     * Build a graph from an edge map.
+     *
+     * @param  edgeMap  the targets of each source node
+     * @param  numNodes the amount of nodes, one more than the largest node ID
+     * @return          the graph
+     * @throws IllegalArgumentException if a node ID is out of range
+     */
+    public static CsrGraph fromEdgeMap(Map<Integer, ? extends Collection<Integer>> edgeMap, int numNodes) {
+
+        int numEdges = 0;
+        for (Collection<Integer> targetIds : edgeMap.values()) {
+            numEdges += targetIds.size();
+        }
+
+        int[] sources = new int[numEdges];
+        int[] targets = new int[numEdges];
+        int e = 0;
+        for (Map.Entry<Integer, ? extends Collection<Integer>> entry : edgeMap.entrySet()) {
+            for (Integer targetId : entry.getValue()) {
+                sources[e] = entry.getKey();
+                targets[e] = targetId;
+                e++;
+            }
+        }
+
+        return fromEdges(sources, targets, numEdges, numNodes);
+
+    }
+
+    /**
+     * Build the undirected version of the graph: each edge in both directions, once.
+     * The rows are the neighbours an undirected network of the graph would report.
+     *
+     * @return the symmetric graph, with sorted rows
+     * @throws IllegalArgumentException if the graph has more edges than an array can hold twice
+     */
+    public CsrGraph toUndirected() {
+
+        int numEdges = getNumEdges();
+        if (2L * numEdges > MAX_EDGES) {
+            throw new IllegalArgumentException("Cannot build the undirected graph of " + numEdges
+                + " edges: both directions exceed the limit of " + MAX_EDGES + " edges");
+        }
+        int[] sources = new int[2 * numEdges];
+        int[] reversed = new int[2 * numEdges];
+        int e = 0;
+        for (int node = 0; node < getNumNodes(); node++) {
+            for (int k = offsets[node]; k < offsets[node + 1]; k++) {
+                sources[e] = node;
+                reversed[e++] = targets[k];
+                sources[e] = targets[k];
+                reversed[e++] = node;
+            }
+        }
+        return fromEdges(sources, reversed, e, getNumNodes());
+
+    }
+
+    /**
+     * Sort each row by target and remove the duplicate edges.
+     *
+     * @param  offsets the start of each row, modified in place
+     * @param  targets the targets grouped by source, modified in place
+     * @return         the graph
+     */
+    static CsrGraph compact(int[] offsets, int[] targets) {
+
+        int numNodes = offsets.length - 1;
+        int write = 0;
+        int start = 0;
+
+        for (int i = 0; i < numNodes; i++) {
+
+            int end = offsets[i + 1];
+            Arrays.sort(targets, start, end);
+            offsets[i] = write;
+            for (int k = start; k < end; k++) {
+                if (k == start || targets[k] != targets[k - 1]) {
+                    targets[write++] = targets[k];
+                }
+            }
+            start = end;
+
+        }
+        offsets[numNodes] = write;
+
+        return new CsrGraph(offsets, write == targets.length ? targets : Arrays.copyOf(targets, write));
+
+    }
+
+    /**
+     * Return the amount of nodes.
+     *
+     * @return the amount of nodes
+     */
+    public int getNumNodes() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Return the amount of edges.
+     *
+     * @return the amount of edges
+     */
+    public int getNumEdges() {
+        return targets.length;
+    }
+
+    /**
+     * Return the amount of edges that leave a node.
+     *
+     * @param  node the ID of the node
+     * @return      the degree of the node
+     */
+    public int getDegree(int node) {
+        return offsets[node + 1] - offsets[node];
+    }
+
+    /**
+     * Return the position of the first edge of a node.
+     *
+     * @param  node the ID of the node
+     * @return      the position of its first edge
+     */
+    public int getStart(int node) {
+        return offsets[node];
+    }
+
+    /**
+     * Return the position after the last edge of a node.
+     *
+     * @param  node the ID of the node
+     * @return      the position after its last edge
+     */
+    public int getEnd(int node) {
+        return offsets[node + 1];
+    }
+
+    /**
+     * Return the target of the edge at a position.
+     *
+     * @param  k the position, from getStart(node) to getEnd(node) - 1
+     * @return   the ID of the target
+     */
+    public int getTarget(int k) {
+        return targets[k];
+    }
+
+    /**
+     * Return a copy of the neighbours of a node. Meant for diagnostics; the hot
+     * path should walk the positions instead.
+     *
+     * @param  node the ID of the node
+     * @return      the IDs of its targets
+     */
+    public int[] getNeighbors(int node) {
+        return Arrays.copyOfRange(targets, offsets[node], offsets[node + 1]);
+    }
+
+    /**
+     * Find the row that holds an edge position.
+     *
+     * @param  offsets the start of each row
+     * @param  k       the position of an edge
+     * @return         the first row whose end is after the position
+     */
+    private static int rowAt(int[] offsets, int k) {
+
+        int low = 0;
+        int high = offsets.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (offsets[mid + 1] <= k) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+
+    }
+
+    /**
+     * Check that a node ID is in range.
+     *
+     * @param node     the ID of the node
+     * @param numNodes the amount of nodes
+     * @throws IllegalArgumentException if the ID is out of range
+     */
+    private static void checkNode(int node, int numNodes) {
+
+        if (node < 0 || node >= numNodes) {
+            throw new IllegalArgumentException("Node ID " + node + " out of range [0, " + numNodes + ")");
+        }
+
+    }
+
+}
@@ -1,14 +1,18 @@
 /* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
 package networkDataLoader;
-import java.io.BufferedInputStream;
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Network Data Loader - Reads and processes network data from text files
@@ -16,35 +20,146 @@ import java.util.Set;
  * This class is responsible for loading network topology data from edge list files
  * and providing utilities for network analysis and processing.
  * 
+ * The network is kept as a {@link CsrGraph}: two int arrays sorted by source,
+ * without boxed IDs or per-edge objects. The HashMap edge map is only built on
+ * request, for code that still expects it.
+ * 
+ * With more than one thread, the file is split into ranges aligned to lines,
+ * each range is parsed on its own thread into its own edge buffer, and the
+ * buffers are merged with a parallel counting sort by source. The node count
+ * and the range of IDs are recorded by the same pass.
+ * 
+ * The parsed graph is saved in a binary cache next to the data file (see
+ * {@link GraphCache}), and later runs map the cache instead of parsing again,
+ * as long as the data file has not changed.
+ * 
+ * The nodes can be renumbered after loading (see {@link NodeOrdering}) so that
+ * neighbours get close IDs; {@link #getIdMapping()} then leads back to the IDs
+ * of the file.
+ * 
  * @author Zhongkui Ma - Original Author
  * @author Bingkun Zhao - Enhanced node counting accuracy, Fixed node counting logic and added debugging features
  * @version 2.0
- * @lastModifiedTime 07/8/2025 
+ *
+ * @time Last update time: 16/10/2026
  */
 public class DataLoader {
 
-    /** The edge map of the network. */
+    /** The smallest range of the file given to one thread. Smaller files are read on one thread. */
+    private static final long MIN_RANGE_SIZE = 1L << 20;
+
+    /** The network, in compressed sparse row form. */
+    private CsrGraph graph;
+
+    /** The edge map of the network, built from the graph on first request. */
     private HashMap<Integer, Set<Integer>> edgeMap;
 
     /** The actual amount of nodes of the network. */
     private int numNodes;
 
+    /** The smallest node ID in the data, or 0 if there is no edge. */
+    private int minNodeId;
+
+    /** The largest node ID in the data, or -1 if there is no edge. */
+    private int maxNodeId;
+
+    /** Whether to read and write the binary cache of the graph. */
+    private boolean useCache = true;
+
+    /** Whether to give dense IDs to the nodes that appear in an edge. */
+    private boolean remapIds;
+
+    /** The order in which the nodes are numbered. */
+    private NodeOrdering ordering = NodeOrdering.NONE;
+
+    /** The translation between the IDs of the file and of the graph, or null if they are the same. */
+    private IdMapping idMapping;
+
     /**
-     * Construct a data loader with a name of data file.
+     * Construct a data loader with a name of data file. The file is read on one
+     * thread, through the binary cache, with the IDs of the file as they are.
      *
      * @param filename the name of the data file.
      * @throws RuntimeException if file reading fails
      */
     public DataLoader(String filename) {
+        this(filename, 1, true, false, NodeOrdering.NONE);
+    }
+
+    /**
+     * Construct a data loader with all its options.
+     *
+     * The file is split into about one range per thread, each parsed on its own
+     * thread. With remapping, the nodes that appear in at least one edge get the
+     * IDs 0 to n - 1, in the order of their IDs in the file, so the amount of nodes
+     * is the real one instead of the largest ID + 1. The nodes are then renumbered
+     * in the given order. The graph uses the new IDs, and {@link #getIdMapping()}
+     * translates them back to the IDs of the file.
+     *
+     * @param filename  the name of the data file.
+     * @param numThread the amount of threads used to read the file
+     * @param useCache  whether to read the graph from its binary cache when it is
+     *                  up to date, and to write the cache after parsing
+     * @param remapIds  whether to give dense IDs to the nodes
+     * @param ordering  the order in which the nodes are numbered, NONE to keep it
+     * @throws IllegalArgumentException if filename is empty, numThread is not positive
+     *                                  or ordering is null
+     * @throws RuntimeException if file reading fails
+     */
+    public DataLoader(String filename, int numThread, boolean useCache, boolean remapIds, NodeOrdering ordering) {
+        this.useCache = useCache;
+        this.remapIds = remapIds;
+        if (ordering == null) {
+            throw new IllegalArgumentException("Ordering cannot be null");
+        }
+        this.ordering = ordering;
         if (filename == null || filename.trim().isEmpty()) {
             throw new IllegalArgumentException("Filename cannot be null or empty");
         }
+        if (numThread < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive: " + numThread);
+        }
         
         // Load edge data from file
-        edgeMap = readEdgeMap(filename);
+        graph = readGraph(filename, numThread);
         
-        // Calculate the number of nodes needed for the network
-        numNodes = calculateNumNodes(edgeMap);
+        // The number of nodes needed for the network (max ID + 1 for 0-based indexing)
+        numNodes = graph.getNumNodes();
+    }
+
+    /**
+     * Return the network in compressed sparse row form.
+     *
+     * With remapping, the node IDs of the graph are dense, 0 to n - 1, and with
+     * an ordering other than NONE they are renumbered in that order as well; use
+     * {@link #getIdMapping()} to translate them back to the IDs of the data file.
+     *
+     * @return the graph, whose node IDs are the IDs of the data file only if they
+     *         are neither remapped nor reordered
+     */
+    public CsrGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Return the translation between the node IDs of the file and the node IDs
+     * of the graph.
+     *
+     * @return the mapping, or null if the IDs of the file are used as they are,
+     *         neither remapped nor reordered
+     */
+    public IdMapping getIdMapping() {
+        return idMapping;
+    }
+
+    /**
+     * Return the ID in the data file of a node of the graph.
+     *
+     * @param  nodeId the ID of the node in the graph
+     * @return        the ID of the node in the data file
+     */
+    public int getOriginalId(int nodeId) {
+        return idMapping == null ? nodeId : idMapping.getOriginalId(nodeId);
     }
 
     /**
@@ -54,9 +169,15 @@ public class DataLoader {
      * - Keys: Source node IDs
      * - Values: Sets of target node IDs (outgoing connections)
      *
+     * The map is built from the graph on the first call and costs far more memory
+     * than the graph itself. Prefer {@link #getGraph()}.
+     *
      * @return the edgeMap representing network connections
      */
     public HashMap<Integer, Set<Integer>> getEdgeMap() { 
+        if (edgeMap == null) {
+            edgeMap = toEdgeMap(graph);
+        }
         return edgeMap; 
     }
 
@@ -72,121 +193,249 @@ public class DataLoader {
     /**
      * Read and parse network edge data from a file.
      *
-     * This method processes a text file containing edge list data and
-     * constructs a HashMap representation of the network.
+     * This method memory-maps a text file containing edge list data, scans
+     * its bytes without creating a String per line (see {@link EdgeListParser}),
+     * and constructs a compressed sparse row representation of the network.
      *
      * Processing features:
      * - Skips empty lines and comments (lines starting with #)
-     * - Handles whitespace-separated node IDs
+     * - Handles whitespace-separated node IDs, with an optional sign
      * - Skips self-loop edges (source == target)
+     * - Keeps duplicate edges once
      * - Provides detailed loading statistics
      *
      * @param  fileName the path and name of the file containing connection data
-     * @return          A HashMap representing the network connections
+     * @return          the graph of the network connections
+     * @throws RuntimeException if file reading fails or file cannot be accessed
+     * @Modified by Bingkun Zhao, 16/10/2026
+     */
+    public CsrGraph readGraph(String fileName) {
+        return readGraph(fileName, 1);
+    }
+
+    /**
+     * Read and parse network edge data from a file on several threads.
+     *
+     * The file is split into about one range per thread, each aligned to the
+     * start of a line. Files smaller than one megabyte per thread use fewer threads.
+     * Unless the loader was built without cache, an up-to-date binary cache is
+     * read instead, and a new cache is written after parsing.
+     *
+     * @param  fileName  the path and name of the file containing connection data
+     * @param  numThread the amount of threads
+     * @return           the graph of the network connections
+     * @throws RuntimeException if file reading fails or file cannot be accessed
+     * @see    #readGraph(String)
+     */
+    public CsrGraph readGraph(String fileName, int numThread) {
+        if (!useCache) {
+            return parseGraph(fileName, numThread);
+        }
+
+        Path source = Paths.get(fileName);
+        long startTime = System.currentTimeMillis();
+        GraphCache cache = Files.isRegularFile(source) ? GraphCache.read(source, remapIds, ordering) : null;
+
+        if (cache != null) {
+            CsrGraph graph = cache.getGraph();
+            idMapping = cache.getIdMapping();
+            minNodeId = cache.getMinNodeId();
+            maxNodeId = cache.getMaxNodeId();
+
+            // Display loading statistics
+            System.out.println("Network data loaded from cache: " + GraphCache.pathOf(source, remapIds, ordering));
+            System.out.println("    Unique edges: " + graph.getNumEdges());
+            System.out.println("    Unique nodes: " + graph.getNumNodes());
+            System.out.println("    Time taken: " + (System.currentTimeMillis() - startTime) + "ms");
+            return graph;
+        }
+
+        CsrGraph graph = parseGraph(fileName, numThread);
+        GraphCache.write(source, graph, idMapping, remapIds, ordering, minNodeId, maxNodeId);
+        return graph;
+    }
+
+    /**
+     * Parse network edge data from a file, without the cache.
+     *
+     * @param  fileName  the path and name of the file containing connection data
+     * @param  numThread the amount of threads
+     * @return           the graph of the network connections
      * @throws RuntimeException if file reading fails or file cannot be accessed
-     * @Modified by Bingkun Zhao, 07/8/2025
      */
-    public HashMap<Integer, Set<Integer>> readEdgeMap(String fileName) {
+    private CsrGraph parseGraph(String fileName, int numThread) {
         System.out.println("Reading network data from file: " + fileName);
         long startTime = System.currentTimeMillis();
         
-        HashMap<Integer, Set<Integer>> edgeMap = new HashMap<>();
-        int lineCount = 0;  	// Total lines processed
-        int edgeCount = 0;		// Valid edges loaded
-
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
-                new BufferedInputStream(new FileInputStream(new File(fileName)))))) {
-
-            String line;
-            // Process each line in the file
-            while ((line = reader.readLine()) != null) {
-                lineCount++;
-                
-                // Skip empty lines and comments (lines starting with #)
-                line = line.trim();
-                if (line.isEmpty() || line.startsWith("#")) {
-                    continue;
-                }
+        EdgeBuffer[] parts;
+        long lineCount = 0;
+        CsrGraph graph;
+        ExecutorService pool = null;
 
-                String[] parts = line.split("\\s+"); // Split by any whitespace
-                if (parts.length < 2) {
-                    System.err.println("Warning: Invalid line " + lineCount + ": " + line);
-                    continue;
-                }
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+
+            long size = channel.size();
+            int numRanges = (int) Math.max(1, Math.min(numThread, size / MIN_RANGE_SIZE));
+
+            parts = new EdgeBuffer[numRanges];
+            EdgeListParser[] parsers = new EdgeListParser[numRanges];
+            for (int t = 0; t < numRanges; t++) {
+                parts[t] = new EdgeBuffer();
+                parsers[t] = new EdgeListParser(parts[t], numRanges > 1);
+            }
+
+            if (numRanges == 1) {
+
+                parsers[0].parse(channel, 0, size);
+
+            } else {
 
-                try {
-                	 // Parse source and target node IDs
-                    int source = Integer.parseInt(parts[0]);
-                    int target = Integer.parseInt(parts[1]);
+                long[] bounds = splitLines(channel, size, numRanges);
+                pool = Executors.newFixedThreadPool(numRanges, r -> {
+                    Thread thread = new Thread(r, "DataLoader-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                });
 
-                    // Skip self-loops
-                    if (source == target) {
-                        continue;
+                ParallelTasks.run(pool, numRanges, t -> {
+                    try {
+                        parsers[t].parse(channel, bounds[t], bounds[t + 1]);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
                     }
+                });
 
-                    // Add edge: source -> target
-                    edgeMap.computeIfAbsent(source, k -> new HashSet<>()).add(target);
-                    edgeCount++;
+            }
 
-                } catch (NumberFormatException e) {
-                    System.err.println("Warning: Invalid number format on line " + lineCount + ": " + line);
-                }
+            // Print the warnings in file order, now that the lines of each range are known.
+            for (EdgeListParser parser : parsers) {
+                parser.printWarnings(lineCount);
+                lineCount += parser.getLineCount();
+            }
+
+            int max = -1;
+            for (EdgeBuffer part : parts) {
+                max = Math.max(max, part.getMaxNodeId());
+            }
+
+            // One node per ID up to the largest, or one per node that appears in an edge
+            int numGraphNodes = max + 1;
+            idMapping = null;
+            if (remapIds) {
+                idMapping = IdMapping.remap(parts, max, pool);
+                numGraphNodes = idMapping.size();
+            }
+
+            if (pool == null) {
+                graph = CsrGraph.fromEdges(parts[0].getSources(), parts[0].getTargets(), parts[0].size(), numGraphNodes);
+            } else {
+                graph = CsrGraph.fromEdges(parts, numGraphNodes, pool, numRanges);
             }
 
-        } catch (IOException e) {
+        } catch (IOException | UncheckedIOException e) {
             System.err.println("Error reading file: " + fileName);
             throw new RuntimeException("Failed to read network data file", e);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+
+        int edgeCount = 0;
+        minNodeId = Integer.MAX_VALUE;
+        maxNodeId = -1;
+        for (EdgeBuffer part : parts) {
+            edgeCount += part.size();
+            if (part.size() > 0) {
+                minNodeId = Math.min(minNodeId, part.getMinNodeId());
+                maxNodeId = Math.max(maxNodeId, part.getMaxNodeId());
+            }
+        }
+        if (maxNodeId < 0) {
+            minNodeId = 0;
         }
 
         // Display loading statistics
         System.out.println("Network data loaded successfully:");
         System.out.println("    Lines processed: " + lineCount);
         System.out.println("    Edges loaded: " + edgeCount);
-        System.out.println("    Unique nodes: " + calculateNumNodes(edgeMap));
+        System.out.println("    Unique edges: " + graph.getNumEdges());
+        System.out.println("    Unique nodes: " + graph.getNumNodes());
+        if (remapIds) {
+            System.out.println("    Node IDs remapped: " + idMapping.size() + " nodes in use out of " + (maxNodeId + 1) + " IDs");
+        }
+        System.out.println("    Threads used: " + parts.length);
         System.out.println("    Time taken: " + (System.currentTimeMillis() - startTime) + "ms");
+
+        if (ordering != NodeOrdering.NONE) {
+            graph = reorder(graph);
+        }
         
-        return edgeMap;
+        return graph;
     }
 
     /**
-     * Calculate the number of nodes needed to accommodate all node IDs in the network.
-     * 
-     * This method determines the minimum number of nodes required by finding
-     * the maximum node ID and adding 1 (assuming 0-based indexing).
-     * This approach ensures that all node IDs in the data can be properly mapped,
-     * even if node IDs are not continuous or don't start from 0.
+     * Renumber the nodes of a graph in the order of the loader, update the
+     * translation of the IDs and report the change of the edge distances.
      *
-     * @param  map the edge map containing network connections
-     * @return     the number of nodes needed (maxNodeId + 1)
+     * @param  graph the graph
+     * @return       the renumbered graph
      */
-    private int calculateNumNodes(HashMap<Integer, Set<Integer>> map) {
-        if (map == null || map.isEmpty()) {
-            return 0;
-        }
+    private CsrGraph reorder(CsrGraph graph) {
+        long startTime = System.currentTimeMillis();
 
-        // Find the maximum node ID in the entire network
-        int maxNodeId = -1;
-        
-        // Check all source node IDs
-        for (Integer sourceId : map.keySet()) {
-            if (sourceId != null && sourceId > maxNodeId) {
-                maxNodeId = sourceId;
-            }
-        }
+        int[] newIds = GraphReordering.permutation(graph, ordering);
+        CsrGraph reordered = GraphReordering.relabel(graph, newIds);
+        idMapping = IdMapping.permute(idMapping, newIds);
 
-        // Check all target node IDs
-        for (Set<Integer> targetIds : map.values()) {
-            if (targetIds != null) {
-                for (Integer targetId : targetIds) {
-                    if (targetId != null && targetId > maxNodeId) {
-                        maxNodeId = targetId;
+        System.out.println("Nodes reordered (" + ordering + "):");
+        System.out.println("    Bandwidth: " + GraphReordering.bandwidth(graph)
+            + " -> " + GraphReordering.bandwidth(reordered));
+        System.out.println(String.format("    Mean edge distance: %.1f -> %.1f",
+            GraphReordering.meanDistance(graph), GraphReordering.meanDistance(reordered)));
+        System.out.println("    Time taken: " + (System.currentTimeMillis() - startTime) + "ms");
+
+        return reordered;
+    }
+
+    /**
+     * Split a file into ranges of about the same size, each starting at the
+     * beginning of a line.
+     *
+     * @param  channel   the channel of the file
+     * @param  size      the size of the file
+     * @param  numRanges the amount of ranges
+     * @return           the start of each range, followed by the size of the file
+     * @throws IOException if the file cannot be read
+     */
+    private static long[] splitLines(FileChannel channel, long size, int numRanges) throws IOException {
+        long[] bounds = new long[numRanges + 1];
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+        for (int t = 1; t < numRanges; t++) {
+            long position = Math.max(size / numRanges * t, bounds[t - 1]);
+
+            // Move the bound just after the next newline, unless it already follows one.
+            long bound = size;
+            for (long p = position - 1; p < size && bound == size; ) {
+                buffer.clear();
+                int read = channel.read(buffer, p);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (buffer.get(i) == '\n') {
+                        bound = p + i + 1;
+                        break;
                     }
                 }
+                p += read;
             }
+            bounds[t] = Math.max(bound, bounds[t - 1]);
         }
 
-        // Return the number of nodes needed (max ID + 1 for 0-based indexing)
-        return maxNodeId >= 0 ? maxNodeId + 1 : 0;
+        bounds[numRanges] = size;
+        return bounds;
     }
 
     /**
@@ -194,35 +443,16 @@ public class DataLoader {
      * 
      * This utility method returns the minimum and maximum node IDs found
      * in the network data, which is useful for debugging and validation.
+     * The range is recorded while the file is read, and always uses the IDs of
+     * the file, even when they are remapped.
      *
      * @return int array where [0] = minimum node ID, [1] = maximum node ID
      */
     public int[] getNodeIdRange() {
-        if (edgeMap == null || edgeMap.isEmpty()) {
+        if (graph == null || graph.getNumEdges() == 0) {
             return new int[]{0, -1};
         }
 
-        int minNodeId = Integer.MAX_VALUE;
-        int maxNodeId = -1;
-        
-        for (Integer sourceId : edgeMap.keySet()) {
-            if (sourceId != null) {
-                minNodeId = Math.min(minNodeId, sourceId);
-                maxNodeId = Math.max(maxNodeId, sourceId);
-            }
-        }
-
-        for (Set<Integer> targetIds : edgeMap.values()) {
-            if (targetIds != null) {
-                for (Integer targetId : targetIds) {
-                    if (targetId != null) {
-                        minNodeId = Math.min(minNodeId, targetId);
-                        maxNodeId = Math.max(maxNodeId, targetId);
-                    }
-                }
-            }
-        }
-
         return new int[]{minNodeId, maxNodeId};
     }
 
@@ -235,16 +465,11 @@ public class DataLoader {
      * @return formatted string with network statistics
      */
     public String getNetworkStatistics() {
-        if (edgeMap == null) {
+        if (graph == null) {
             return "No network data loaded";
         }
 
-        int totalEdges = 0;
-        for (Set<Integer> targets : edgeMap.values()) {
-            if (targets != null) {
-                totalEdges += targets.size();
-            }
-        }
+        int totalEdges = graph.getNumEdges();
 
         return String.format("Network Statistics:\n" +
                            "  Nodes: %d\n" +
@@ -253,6 +478,27 @@ public class DataLoader {
                            numNodes, totalEdges, 
                            numNodes > 0 ? (double) totalEdges / numNodes : 0.0);
     }
+
+    /**
+     * Build the edge map of a graph.
+     *
+     * @param  graph the graph
+     * @return       the targets of each node that has at least one edge
+     */
+    private static HashMap<Integer, Set<Integer>> toEdgeMap(CsrGraph graph) {
+        HashMap<Integer, Set<Integer>> map = new HashMap<>();
+        for (int source = 0; source < graph.getNumNodes(); source++) {
+            if (graph.getDegree(source) == 0) {
+                continue;
+            }
+            Set<Integer> targets = new HashSet<>();
+            for (int k = graph.getStart(source); k < graph.getEnd(source); k++) {
+                targets.add(graph.getTarget(k));
+            }
+            map.put(source, targets);
+        }
+        return map;
+    }
     
  
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package networkDataLoader;
+
+import java.util.Arrays;
+
+/**
+ * EdgeBuffer - A growable list of edges in two primitive arrays
+ *
+ * <p>The buffer also records the smallest and largest node ID it has seen, so
+ * the range of IDs comes out of the same pass that reads the edges.</p>
+ *
+ * @author Bingkun Zhao
+ *
+ * @time Last update time: 16/10/2026
+ */
+final class EdgeBuffer {
+
+    /** The sources of the edges. */
+    private int[] sources;
+
+    /** The targets of the edges. */
+    private int[] targets;
+
+    /** The amount of edges. */
+    private int size;
+
+    /** The smallest node ID seen, or Integer.MAX_VALUE if there is no edge. */
+    private int minNodeId = Integer.MAX_VALUE;
+
+    /** The largest node ID seen, or -1 if there is no edge. */
+    private int maxNodeId = -1;
+
+    /** The largest array the JVM reliably allocates. */
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    /**
+     * Construct an empty buffer.
+     */
+    EdgeBuffer() {
+
+        sources = new int[1024];
+        targets = new int[1024];
+
+    }
+
+    /**
+     * Add an edge.
+     *
+     * @param source the ID of the source, non-negative
+     * @param target the ID of the target, non-negative
+     * @throws IllegalStateException if the buffer already holds the most edges an array can
+     */
+    void add(int source, int target) {
+
+        if (size == sources.length) {
+            if (size >= MAX_CAPACITY) {
+                throw new IllegalStateException("Cannot hold more than " + MAX_CAPACITY + " edges in one buffer");
+            }
+            int capacity = (int) Math.min(MAX_CAPACITY, (long) size * 2);
+            sources = Arrays.copyOf(sources, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+        }
+        sources[size] = source;
+        targets[size] = target;
+        size++;
+        minNodeId = Math.min(minNodeId, Math.min(source, target));
+        maxNodeId = Math.max(maxNodeId, Math.max(source, target));
+
+    }
+
+    /**
+     * Return the amount of edges.
+     *
+     * @return the amount of edges
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Return the sources of the edges. Only the first size() entries are edges.
+     *
+     * @return the array of sources
+     */
+    int[] getSources() {
+        return sources;
+    }
+
+    /**
+     * Return the targets of the edges. Only the first size() entries are edges.
+     *
+     * @return the array of targets
+     */
+    int[] getTargets() {
+        return targets;
+    }
+
+    /**
+     * Return the smallest node ID seen.
+     *
+     * @return the smallest ID, or 0 if there is no edge
+     */
+    int getMinNodeId() {
+        return size > 0 ? minNodeId : 0;
+    }
+
+    /**
+     * Return the largest node ID seen.
+     *
+     * @return the largest ID, or -1 if there is no edge
+     */
+    int getMaxNodeId() {
+        return maxNodeId;
+    }
+
+}
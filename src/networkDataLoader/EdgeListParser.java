@@ -0,0 +1,336 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package networkDataLoader;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * EdgeListParser - A byte-level parser of edge list files
+ *
+ * <p>The parser maps the file into memory with {@link FileChannel#map} and scans
+ * the raw bytes for digits, signs, whitespace, newlines and {@code #} comments.
+ * A valid line produces an edge without creating any object; only invalid lines
+ * are decoded into a String, for the warning. Files larger than a mapping are
+ * read window by window, each window starting at the beginning of a line.</p>
+ *
+ * <p>A line holds a source ID and a target ID separated by spaces or tabs; any
+ * further column is ignored. Self-loops are skipped, and lines with a negative
+ * or malformed ID are skipped with a warning.</p>
+ *
+ * <p>When several parsers read parts of the same file in parallel, each one
+ * only knows its line numbers within its part. Their warnings are then kept
+ * and printed in file order once the lines before each part have been
+ * counted.</p>
+ *
+ * @author Bingkun Zhao
+ *
+ * @time Last update time: 16/10/2026
+ */
+final class EdgeListParser {
+
+    /** The largest part of the file mapped at once. */
+    static final long WINDOW = 1L << 30;
+
+    /** The edges read so far. */
+    private final EdgeBuffer edges;
+
+    /** The amount of lines read so far. */
+    private long lineCount;
+
+    /** The value of the last number parsed, so that parsing a number returns its end only. */
+    private long value;
+
+    /** The warnings kept for later, or null to print them at once. */
+    private final List<Warning> warnings;
+
+    /**
+     * Construct a parser that prints its warnings at once.
+     *
+     * @param edges the buffer that receives the edges
+     */
+    EdgeListParser(EdgeBuffer edges) {
+        this(edges, false);
+    }
+
+    /**
+     * Construct a parser.
+     *
+     * @param edges         the buffer that receives the edges
+     * @param deferWarnings whether to keep the warnings until {@link #printWarnings(long)}
+     */
+    EdgeListParser(EdgeBuffer edges, boolean deferWarnings) {
+
+        this.edges = edges;
+        this.warnings = deferWarnings ? new ArrayList<>() : null;
+
+    }
+
+    /**
+     * Parse a part of a file. The part starts at the beginning of a line and ends
+     * at the beginning of a line or at the end of the file.
+     *
+     * @param  channel the channel of the file
+     * @param  from    the position of the first byte
+     * @param  to      the position after the last byte
+     * @throws IOException if the file cannot be mapped, or a line is longer than a window
+     */
+    void parse(FileChannel channel, long from, long to) throws IOException {
+
+        long position = from;
+
+        while (position < to) {
+
+            long length = Math.min(WINDOW, to - position);
+            boolean last = position + length == to;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+            int consumed = parseLines(buffer, (int) length, last);
+            if (consumed == 0) {
+                throw new IOException("Line longer than " + WINDOW + " bytes at position " + position);
+            }
+            position += consumed;
+
+        }
+
+    }
+
+    /**
+     * Return the amount of lines read so far.
+     *
+     * @return the amount of lines
+     */
+    long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Print the warnings kept so far.
+     *
+     * @param lineBase the amount of lines of the file before the part of this parser
+     */
+    void printWarnings(long lineBase) {
+
+        if (warnings == null) return;
+        for (Warning w : warnings) {
+            print(w.message, lineBase + w.line, w.text);
+        }
+        warnings.clear();
+
+    }
+
+    /**
+     * Parse the complete lines of a window.
+     *
+     * @param  buffer the window
+     * @param  limit  the amount of bytes in the window
+     * @param  last   whether the window ends the part, so its last line is complete
+     * @return        the amount of bytes parsed, up to the start of the first incomplete line
+     */
+    private int parseLines(MappedByteBuffer buffer, int limit, boolean last) {
+
+        int start = 0;
+
+        for (int i = 0; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                parseLine(buffer, start, i);
+                start = i + 1;
+            }
+        }
+
+        if (last && start < limit) {
+            parseLine(buffer, start, limit);
+            start = limit;
+        }
+
+        return start;
+
+    }
+
+    /**
+     * Parse one line.
+     *
+     * @param buffer the window
+     * @param start  the position of the first byte of the line
+     * @param end    the position of the newline, or the end of the window
+     */
+    private void parseLine(MappedByteBuffer buffer, int start, int end) {
+
+        lineCount++;
+
+        int i = skipBlanks(buffer, start, end);
+
+        // Skip empty lines and comments (lines starting with #)
+        if (i == end || buffer.get(i) == '#') {
+            return;
+        }
+
+        // A line needs at least two columns
+        int k = skipBlanks(buffer, skipToken(buffer, i, end), end);
+        if (k == end) {
+            warn("Invalid line", buffer, start, end);
+            return;
+        }
+
+        // Parse source and target node IDs, each ending at a blank or at the end of the line
+        if (parseNumber(buffer, i, end) < 0) {
+            warn("Invalid number format on line", buffer, start, end);
+            return;
+        }
+        long source = value;
+        if (parseNumber(buffer, k, end) < 0) {
+            warn("Invalid number format on line", buffer, start, end);
+            return;
+        }
+        long target = value;
+
+        // Skip self-loops
+        if (source == target) {
+            return;
+        }
+
+        // Node IDs index the graph arrays
+        if (source < 0 || target < 0) {
+            warn("Negative node ID on line", buffer, start, end);
+            return;
+        }
+
+        edges.add((int) source, (int) target);
+
+    }
+
+    /**
+     * Parse a number with an optional sign. The number must end at a blank or at
+     * the end of the line.
+     *
+     * @param  buffer the window
+     * @param  i      the position of the first byte of the number
+     * @param  end    the end of the line
+     * @return        the position after the number, or -1 if it is malformed
+     */
+    private int parseNumber(MappedByteBuffer buffer, int i, int end) {
+
+        boolean negative = false;
+        byte b = buffer.get(i);
+        if (b == '-' || b == '+') {
+            negative = b == '-';
+            i++;
+        }
+
+        int first = i;
+        long v = 0;
+        while (i < end) {
+            b = buffer.get(i);
+            if (b < '0' || b > '9') break;
+            v = v * 10 + (b - '0');
+            if (v > Integer.MAX_VALUE + 1L) return -1; // Out of the range of int, like Integer.parseInt.
+            i++;
+        }
+
+        if (i == first || (i < end && !isBlank(buffer.get(i)))) return -1;
+        v = negative ? -v : v;
+        if (v > Integer.MAX_VALUE) return -1;
+
+        value = v;
+        return i;
+
+    }
+
+    /**
+     * Skip the blanks between columns.
+     *
+     * @param  buffer the window
+     * @param  i      the position to start from
+     * @param  end    the end of the line
+     * @return        the position of the first other byte, or end
+     */
+    private static int skipBlanks(MappedByteBuffer buffer, int i, int end) {
+
+        while (i < end && isBlank(buffer.get(i))) {
+            i++;
+        }
+        return i;
+
+    }
+
+    /**
+     * Skip the bytes of a column.
+     *
+     * @param  buffer the window
+     * @param  i      the position to start from
+     * @param  end    the end of the line
+     * @return        the position of the first blank, or end
+     */
+    private static int skipToken(MappedByteBuffer buffer, int i, int end) {
+
+        while (i < end && !isBlank(buffer.get(i))) {
+            i++;
+        }
+        return i;
+
+    }
+
+    /**
+     * Check whether a byte separates columns.
+     *
+     * @param  b the byte
+     * @return   true for a space, a tab, a carriage return or a form feed
+     */
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+    }
+
+    /**
+     * Print a warning about an invalid line.
+     *
+     * @param message the problem
+     * @param buffer  the window
+     * @param start   the position of the first byte of the line
+     * @param end     the end of the line
+     */
+    private void warn(String message, MappedByteBuffer buffer, int start, int end) {
+
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        String text = new String(bytes, StandardCharsets.UTF_8).trim();
+
+        if (warnings == null) {
+            print(message, lineCount, text);
+        } else {
+            warnings.add(new Warning(message, lineCount, text));
+        }
+
+    }
+
+    /**
+     * Print a warning.
+     *
+     * @param message the problem
+     * @param line    the line number in the file
+     * @param text    the line
+     */
+    private static void print(String message, long line, String text) {
+        System.err.println("Warning: " + message + " " + line + ": " + text);
+    }
+
+    /**
+     * A warning kept until the line numbers of the part are known.
+     */
+    private static final class Warning {
+
+        final String message;
+        final long line;
+        final String text;
+
+        Warning(String message, long line, String text) {
+            this.message = message;
+            this.line = line;
+            this.text = text;
+        }
+
+    }
+
+}
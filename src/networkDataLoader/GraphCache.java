@@ -0,0 +1,296 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package networkDataLoader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * GraphCache - A binary snapshot of a parsed graph, kept next to its source file
+ *
+ * <p>The snapshot of {@code edges.txt} is {@code edges.txt.csr}, or
+ * {@code edges.txt.dense.csr} when node IDs are remapped, with the name of the
+ * {@link NodeOrdering} before the extension when the nodes are reordered
+ * (e.g. {@code edges.txt.dense.rcm.csr}). It holds a header,
+ * then the offsets and the targets of the {@link CsrGraph} and the original IDs
+ * of the {@link IdMapping}, if any, as little-endian ints. When read, the
+ * sections are copied through a memory map into heap arrays, so a restart skips
+ * parsing but still holds the graph on the heap.
+ * The header records:</p>
+ * <ul>
+ *   <li>a magic number and a format version;</li>
+ *   <li>the size, the modification time and the CRC32C checksum of the source file;</li>
+ *   <li>the amount of nodes, edges and original IDs, and the smallest and largest node ID.</li>
+ * </ul>
+ *
+ * <p>A snapshot is used only if the source has the same size and the same
+ * checksum. The checksum is computed on every read, since a file copied with its
+ * timestamps kept, or rewritten and touched back, can change with the same size
+ * and modification time; hashing is a sequential read, far cheaper than parsing.
+ * The modification time is only recorded. Anything else, including a snapshot of
+ * an older version or a truncated one, is ignored and rewritten.</p>
+ *
+ * @author Bingkun Zhao
+ *
+ * @time Last update time: 16/10/2026
+ */
+final class GraphCache {
+
+    /** "CSRG" in ASCII. */
+    private static final int MAGIC = 0x43535247;
+
+    /** The format version. Bump it whenever the layout or the parsing rules change. */
+    private static final int VERSION = 2;
+
+    /** The size of the header in bytes. */
+    private static final int HEADER_SIZE = 56;
+
+    /** The largest part of a file mapped or buffered at once. */
+    private static final int WINDOW = 1 << 26;
+
+    /** The graph read from the snapshot. */
+    private final CsrGraph graph;
+
+    /** The translation of the node IDs, or null if they are neither remapped nor reordered. */
+    private final IdMapping idMapping;
+
+    /** The smallest node ID of the source, or 0 if there is no edge. */
+    private final int minNodeId;
+
+    /** The largest node ID of the source, or -1 if there is no edge. */
+    private final int maxNodeId;
+
+    private GraphCache(CsrGraph graph, IdMapping idMapping, int minNodeId, int maxNodeId) {
+
+        this.graph = graph;
+        this.idMapping = idMapping;
+        this.minNodeId = minNodeId;
+        this.maxNodeId = maxNodeId;
+
+    }
+
+    /**
+     * Return the path of the snapshot of a source file.
+     *
+     * @param  source   the path of the source file
+     * @param  remapped whether the node IDs are remapped
+     * @param  ordering the order of the nodes
+     * @return          the path of the snapshot
+     */
+    static Path pathOf(Path source, boolean remapped, NodeOrdering ordering) {
+        return source.resolveSibling(source.getFileName() + (remapped ? ".dense" : "")
+            + (ordering == NodeOrdering.NONE ? "" : "." + ordering.name().toLowerCase()) + ".csr");
+    }
+
+    /**
+     * Read the snapshot of a source file, if it is valid.
+     *
+     * @param  source   the path of the source file
+     * @param  remapped whether the node IDs are remapped
+     * @param  ordering the order of the nodes
+     * @return          the snapshot, or null if there is none or it is out of date
+     */
+    static GraphCache read(Path source, boolean remapped, NodeOrdering ordering) {
+
+        Path path = pathOf(source, remapped, ordering);
+        boolean mapped = remapped || ordering != NodeOrdering.NONE;
+        if (!Files.isRegularFile(path)) return null;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+            if (channel.size() < HEADER_SIZE) return null;
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) return null;
+
+            long size = header.getLong();
+            header.getLong(); // The modification time of the source, for information only.
+            long checksum = header.getLong();
+            int numNodes = header.getInt();
+            int numEdges = header.getInt();
+            int numIds = header.getInt();
+            header.getInt(); // Reserved.
+            int minNodeId = header.getInt();
+            int maxNodeId = header.getInt();
+
+            if (size != Files.size(source) || checksum != checksumOf(source)) return null;
+            if (numNodes < 0 || numEdges < 0 || numIds != (mapped ? numNodes : 0)
+                || channel.size() != HEADER_SIZE + 4L * (numNodes + 1) + 4L * numEdges + 4L * numIds) {
+                return null;
+            }
+
+            int[] offsets = new int[numNodes + 1];
+            int[] targets = new int[numEdges];
+            int[] originalIds = new int[numIds];
+            readInts(channel, HEADER_SIZE, offsets);
+            readInts(channel, HEADER_SIZE + 4L * offsets.length, targets);
+            readInts(channel, HEADER_SIZE + 4L * offsets.length + 4L * targets.length, originalIds);
+
+            return new GraphCache(new CsrGraph(offsets, targets),
+                mapped ? new IdMapping(originalIds) : null, minNodeId, maxNodeId);
+
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Warning: Cannot read the graph cache " + path + ": " + e.getMessage());
+            return null;
+        }
+
+    }
+
+    /**
+     * Write the snapshot of a source file. A failure only prints a warning, since
+     * the snapshot is a cache.
+     *
+     * @param source    the path of the source file
+     * @param graph     the graph parsed from the source
+     * @param idMapping the translation of the node IDs, or null if they are neither
+     *                  remapped nor reordered
+     * @param remapped  whether the node IDs are remapped
+     * @param ordering  the order of the nodes
+     * @param minNodeId the smallest node ID of the source
+     * @param maxNodeId the largest node ID of the source
+     */
+    static void write(Path source, CsrGraph graph, IdMapping idMapping, boolean remapped,
+                      NodeOrdering ordering, int minNodeId, int maxNodeId) {
+
+        Path path = pathOf(source, remapped, ordering);
+        int[] originalIds = idMapping == null ? new int[0] : idMapping.originalIds();
+        Path temp = null;
+
+        try {
+
+            // A unique name, so runs writing the same snapshot at once do not share a temporary file.
+            temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+
+            long size = Files.size(source);
+            long modified = Files.getLastModifiedTime(source).toMillis();
+            long checksum = checksumOf(source);
+
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+
+                ByteBuffer buffer = ByteBuffer.allocateDirect(WINDOW).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(MAGIC).putInt(VERSION)
+                    .putLong(size).putLong(modified).putLong(checksum)
+                    .putInt(graph.getNumNodes()).putInt(graph.getNumEdges())
+                    .putInt(originalIds.length).putInt(0)
+                    .putInt(minNodeId).putInt(maxNodeId);
+
+                for (int i = 0; i <= graph.getNumNodes(); i++) {
+                    if (!buffer.hasRemaining()) flush(channel, buffer);
+                    buffer.putInt(i < graph.getNumNodes() ? graph.getStart(i) : graph.getNumEdges());
+                }
+                for (int k = 0; k < graph.getNumEdges(); k++) {
+                    if (!buffer.hasRemaining()) flush(channel, buffer);
+                    buffer.putInt(graph.getTarget(k));
+                }
+                for (int id : originalIds) {
+                    if (!buffer.hasRemaining()) flush(channel, buffer);
+                    buffer.putInt(id);
+                }
+                flush(channel, buffer);
+
+            }
+
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+        } catch (IOException e) {
+            System.err.println("Warning: Cannot write the graph cache " + path + ": " + e.getMessage());
+            try {
+                if (temp != null) Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Nothing more to do; the next run tries again.
+            }
+        }
+
+    }
+
+    CsrGraph getGraph() {
+        return graph;
+    }
+
+    IdMapping getIdMapping() {
+        return idMapping;
+    }
+
+    int getMinNodeId() {
+        return minNodeId;
+    }
+
+    int getMaxNodeId() {
+        return maxNodeId;
+    }
+
+    /**
+     * Compute the CRC32C checksum of a file.
+     *
+     * @param  source the path of the file
+     * @return        the checksum
+     * @throws IOException if the file cannot be read
+     */
+    private static long checksumOf(Path source) throws IOException {
+
+        CRC32C crc = new CRC32C();
+
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += WINDOW) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, size - position)));
+            }
+        }
+
+        return crc.getValue();
+
+    }
+
+    /**
+     * Read ints from a mapped file into an array.
+     *
+     * @param  channel  the channel of the file
+     * @param  position the position of the first int
+     * @param  dst      the array to fill
+     * @throws IOException if the file cannot be mapped
+     */
+    private static void readInts(FileChannel channel, long position, int[] dst) throws IOException {
+
+        for (int i = 0; i < dst.length; ) {
+            int count = Math.min(WINDOW / 4, dst.length - i);
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, position + 4L * i, 4L * count);
+            IntBuffer ints = map.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            ints.get(dst, i, count);
+            i += count;
+        }
+
+    }
+
+    /**
+     * Write the content of a buffer to a channel and clear it.
+     *
+     * @param  channel the channel
+     * @param  buffer  the buffer
+     * @throws IOException if the channel cannot be written
+     */
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+
+    }
+
+}
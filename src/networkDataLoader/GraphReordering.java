@@ -0,0 +1,234 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package networkDataLoader;
+
+import java.util.Arrays;
+
+/**
+ * GraphReordering - Renumbers the nodes of a graph in a {@link NodeOrdering}
+ *
+ * <p>A permutation is given as the new ID of each old ID. The graph is relabelled
+ * with it and the edge distances, i.e. the differences between the IDs of the
+ * two ends of an edge, measure how local the neighbour scans are.</p>
+ *
+ * @author Bingkun Zhao
+ *
+ * @time Last update time: 16/10/2026
+ */
+final class GraphReordering {
+
+    private GraphReordering() {
+    }
+
+    /**
+     * Compute the new ID of each node of a graph in an ordering.
+     *
+     * @param  graph    the graph
+     * @param  ordering the ordering
+     * @return          the new ID of each old ID
+     */
+    static int[] permutation(CsrGraph graph, NodeOrdering ordering) {
+
+        int numNodes = graph.getNumNodes();
+        int[] order;
+
+        switch (ordering) {
+            case BFS:
+                order = breadthFirst(graph.toUndirected(), false);
+                break;
+            case RCM:
+                order = breadthFirst(graph.toUndirected(), true);
+                for (int i = 0, j = numNodes - 1; i < j; i++, j--) {
+                    int swap = order[i];
+                    order[i] = order[j];
+                    order[j] = swap;
+                }
+                break;
+            case DEGREE:
+                order = byDegree(graph.toUndirected(), true);
+                break;
+            default:
+                order = new int[numNodes];
+                for (int i = 0; i < numNodes; i++) {
+                    order[i] = i;
+                }
+        }
+
+        int[] newIds = new int[numNodes];
+        for (int i = 0; i < numNodes; i++) {
+            newIds[order[i]] = i;
+        }
+        return newIds;
+
+    }
+
+    /**
+     * Renumber the nodes of a graph.
+     *
+     * @param  graph  the graph
+     * @param  newIds the new ID of each old ID
+     * @return        the renumbered graph, with sorted rows
+     */
+    static CsrGraph relabel(CsrGraph graph, int[] newIds) {
+
+        int numNodes = graph.getNumNodes();
+        int[] offsets = new int[numNodes + 1];
+        for (int node = 0; node < numNodes; node++) {
+            offsets[newIds[node] + 1] = graph.getDegree(node);
+        }
+        for (int i = 0; i < numNodes; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        int[] targets = new int[graph.getNumEdges()];
+        for (int node = 0; node < numNodes; node++) {
+            int position = offsets[newIds[node]];
+            for (int k = graph.getStart(node); k < graph.getEnd(node); k++) {
+                targets[position++] = newIds[graph.getTarget(k)];
+            }
+            Arrays.sort(targets, offsets[newIds[node]], position);
+        }
+
+        return new CsrGraph(offsets, targets);
+
+    }
+
+    /**
+     * Return the bandwidth of a graph: the largest edge distance.
+     *
+     * @param  graph the graph
+     * @return       the largest difference between the IDs of the ends of an edge
+     */
+    static int bandwidth(CsrGraph graph) {
+
+        int max = 0;
+        for (int node = 0; node < graph.getNumNodes(); node++) {
+            for (int k = graph.getStart(node); k < graph.getEnd(node); k++) {
+                max = Math.max(max, Math.abs(graph.getTarget(k) - node));
+            }
+        }
+        return max;
+
+    }
+
+    /**
+     * Return the mean edge distance of a graph.
+     *
+     * @param  graph the graph
+     * @return       the mean difference between the IDs of the ends of an edge
+     */
+    static double meanDistance(CsrGraph graph) {
+
+        long sum = 0;
+        for (int node = 0; node < graph.getNumNodes(); node++) {
+            for (int k = graph.getStart(node); k < graph.getEnd(node); k++) {
+                sum += Math.abs(graph.getTarget(k) - node);
+            }
+        }
+        return graph.getNumEdges() > 0 ? (double) sum / graph.getNumEdges() : 0;
+
+    }
+
+    /**
+     * Sort the nodes by degree with a counting sort, ties in ID order.
+     *
+     * @param  graph      the graph
+     * @param  descending whether the highest degrees come first
+     * @return            the nodes in order
+     */
+    private static int[] byDegree(CsrGraph graph, boolean descending) {
+
+        int numNodes = graph.getNumNodes();
+        int maxDegree = maxDegree(graph);
+
+        int[] start = new int[maxDegree + 2];
+        for (int node = 0; node < numNodes; node++) {
+            int degree = graph.getDegree(node);
+            start[(descending ? maxDegree - degree : degree) + 1]++;
+        }
+        for (int d = 0; d <= maxDegree; d++) {
+            start[d + 1] += start[d];
+        }
+
+        int[] order = new int[numNodes];
+        for (int node = 0; node < numNodes; node++) {
+            int degree = graph.getDegree(node);
+            order[start[descending ? maxDegree - degree : degree]++] = node;
+        }
+        return order;
+
+    }
+
+    /**
+     * Visit the nodes of a symmetric graph breadth first, one component after the other.
+     *
+     * @param  graph        the symmetric graph
+     * @param  cuthillMcKee whether each component starts from an unvisited node of
+     *                      lowest degree and the neighbours of a node are visited by
+     *                      ascending degree, instead of both in ID order
+     * @return              the nodes in the order they are visited
+     */
+    private static int[] breadthFirst(CsrGraph graph, boolean cuthillMcKee) {
+
+        int numNodes = graph.getNumNodes();
+        int[] starts = cuthillMcKee ? byDegree(graph, false) : null;
+        boolean[] visited = new boolean[numNodes];
+        int[] order = new int[numNodes];
+        long[] keys = cuthillMcKee ? new long[maxDegree(graph)] : null;
+        int tail = 0;
+
+        for (int s = 0; s < numNodes; s++) {
+
+            int start = cuthillMcKee ? starts[s] : s;
+            if (visited[start]) continue;
+            visited[start] = true;
+            order[tail++] = start;
+
+            for (int head = tail - 1; head < tail; head++) {
+
+                int node = order[head];
+                int first = tail;
+                for (int k = graph.getStart(node); k < graph.getEnd(node); k++) {
+                    int next = graph.getTarget(k);
+                    if (!visited[next]) {
+                        visited[next] = true;
+                        order[tail++] = next;
+                    }
+                }
+
+                if (cuthillMcKee && tail - first > 1) { // Sort the new nodes by degree, then ID.
+                    int count = tail - first;
+                    for (int i = 0; i < count; i++) {
+                        int next = order[first + i];
+                        keys[i] = ((long) graph.getDegree(next) << 32) | next;
+                    }
+                    Arrays.sort(keys, 0, count);
+                    for (int i = 0; i < count; i++) {
+                        order[first + i] = (int) keys[i];
+                    }
+                }
+
+            }
+
+        }
+
+        return order;
+
+    }
+
+    /**
+     * Return the largest degree of a graph.
+     *
+     * @param  graph the graph
+     * @return       the largest degree, or 0 if there is no node
+     */
+    private static int maxDegree(CsrGraph graph) {
+
+        int max = 0;
+        for (int node = 0; node < graph.getNumNodes(); node++) {
+            max = Math.max(max, graph.getDegree(node));
+        }
+        return max;
+
+    }
+
+}
@@ -0,0 +1,237 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package networkDataLoader;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * IdMapping - The translation between the node IDs of a data file and dense IDs
+ *
+ * <p>Data files often number their nodes sparsely, so building one node per ID
+ * up to the largest one creates many isolated phantom nodes. A mapping gives the
+ * nodes that actually appear in an edge the dense IDs {@code 0} to
+ * {@code size() - 1}, in the order of their original IDs, and keeps the sorted
+ * table of original IDs to translate results back.</p>
+ *
+ * <p>While the file is loaded, the IDs that appear are marked in a bitset over
+ * the original range, with the rank of each word precomputed, so an ID is
+ * remapped in constant time. Only the table of original IDs is kept afterwards,
+ * 4 bytes per real node; dense IDs are found from original ones by binary search.</p>
+ *
+ * <p>When the nodes are also reordered (see {@link NodeOrdering}), the table is
+ * permuted along with them, and a sorted copy of it with the matching dense IDs
+ * is kept for the lookups.</p>
+ *
+ * @author Bingkun Zhao
+ *
+ * @time Last update time: 16/10/2026
+ */
+public final class IdMapping {
+
+    /** The original ID of each dense ID. */
+    private final int[] originalIds;
+
+    /** The original IDs in ascending order, or null if originalIds is already ascending. */
+    private final int[] sortedIds;
+
+    /** The dense ID of each element of sortedIds, or null if originalIds is ascending. */
+    private final int[] sortedDenseIds;
+
+    /**
+     * Construct a mapping from its table.
+     *
+     * @param originalIds the original ID of each dense ID, all different
+     * @throws IllegalArgumentException if an original ID appears twice
+     */
+    public IdMapping(int[] originalIds) {
+
+        this.originalIds = originalIds;
+
+        boolean ascending = true;
+        for (int i = 1; i < originalIds.length && ascending; i++) {
+            ascending = originalIds[i] > originalIds[i - 1];
+        }
+
+        if (ascending) {
+            sortedIds = null;
+            sortedDenseIds = null;
+            return;
+        }
+
+        long[] pairs = new long[originalIds.length];
+        for (int i = 0; i < originalIds.length; i++) {
+            pairs[i] = ((long) originalIds[i] << 32) | i;
+        }
+        Arrays.sort(pairs);
+
+        sortedIds = new int[pairs.length];
+        sortedDenseIds = new int[pairs.length];
+        for (int i = 0; i < pairs.length; i++) {
+            sortedIds[i] = (int) (pairs[i] >> 32);
+            sortedDenseIds[i] = (int) pairs[i];
+            if (i > 0 && sortedIds[i] == sortedIds[i - 1]) {
+                throw new IllegalArgumentException("Duplicate original ID " + sortedIds[i]);
+            }
+        }
+
+    }
+
+    /**
+     * Give dense IDs to the nodes of some edge buffers and rewrite the edges with
+     * them, in place.
+     *
+     * @param  parts     the edge buffers
+     * @param  maxNodeId the largest original ID in the buffers
+     * @param  pool      the thread pool that rewrites the buffers, one task each,
+     *                   or null to rewrite them in the calling thread
+     * @return           the mapping
+     */
+    static IdMapping remap(EdgeBuffer[] parts, int maxNodeId, ExecutorService pool) {
+
+        if (maxNodeId < 0) {
+            return new IdMapping(new int[0]);
+        }
+
+        // Mark the IDs that appear.
+        long[] words = new long[(maxNodeId >>> 6) + 1];
+        for (EdgeBuffer part : parts) {
+            int[] sources = part.getSources();
+            int[] targets = part.getTargets();
+            for (int e = 0, size = part.size(); e < size; e++) {
+                words[sources[e] >>> 6] |= 1L << sources[e];
+                words[targets[e] >>> 6] |= 1L << targets[e];
+            }
+        }
+
+        // The dense ID of the first marked ID of each word.
+        int[] rank = new int[words.length];
+        int count = 0;
+        for (int w = 0; w < words.length; w++) {
+            rank[w] = count;
+            count += Long.bitCount(words[w]);
+        }
+
+        int[] originalIds = new int[count];
+        for (int w = 0, i = 0; w < words.length; w++) {
+            for (long bits = words[w]; bits != 0; bits &= bits - 1) {
+                originalIds[i++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+
+        if (pool == null) {
+            for (EdgeBuffer part : parts) {
+                rewrite(part, words, rank);
+            }
+        } else {
+            ParallelTasks.run(pool, parts.length, t -> rewrite(parts[t], words, rank));
+        }
+
+        return new IdMapping(originalIds);
+
+    }
+
+    /**
+     * Compose a mapping with a renumbering of its dense IDs.
+     *
+     * @param  mapping the mapping, or null if the dense IDs are the original IDs
+     * @param  newIds  the new dense ID of each old dense ID
+     * @return         the mapping from the new dense IDs to the original IDs
+     */
+    static IdMapping permute(IdMapping mapping, int[] newIds) {
+
+        int[] originalIds = new int[newIds.length];
+        for (int old = 0; old < newIds.length; old++) {
+            originalIds[newIds[old]] = mapping == null ? old : mapping.originalIds[old];
+        }
+        return new IdMapping(originalIds);
+
+    }
+
+    /**
+     * Return the amount of nodes.
+     *
+     * @return the amount of nodes that appear in an edge
+     */
+    public int size() {
+        return originalIds.length;
+    }
+
+    /**
+     * Return the original ID of a node.
+     *
+     * @param  denseId the dense ID, from 0 to size() - 1
+     * @return         the ID of the node in the data file
+     */
+    public int getOriginalId(int denseId) {
+        return originalIds[denseId];
+    }
+
+    /**
+     * Return the dense ID of a node.
+     *
+     * @param  originalId the ID of the node in the data file
+     * @return            the dense ID, or -1 if the node is in no edge
+     */
+    public int getDenseId(int originalId) {
+
+        if (sortedIds == null) {
+            int i = Arrays.binarySearch(originalIds, originalId);
+            return i >= 0 ? i : -1;
+        }
+        int i = Arrays.binarySearch(sortedIds, originalId);
+        return i >= 0 ? sortedDenseIds[i] : -1;
+
+    }
+
+    /**
+     * Return a copy of the table of original IDs.
+     *
+     * @return the original ID of each dense ID
+     */
+    public int[] getOriginalIds() {
+        return originalIds.clone();
+    }
+
+    /**
+     * Return the table of original IDs without copying it, for the cache.
+     *
+     * @return the original ID of each dense ID
+     */
+    int[] originalIds() {
+        return originalIds;
+    }
+
+    /**
+     * Rewrite the edges of a buffer with dense IDs.
+     *
+     * @param part  the edge buffer
+     * @param words the marks of the IDs
+     * @param rank  the dense ID of the first mark of each word
+     */
+    private static void rewrite(EdgeBuffer part, long[] words, int[] rank) {
+
+        int[] sources = part.getSources();
+        int[] targets = part.getTargets();
+        for (int e = 0, size = part.size(); e < size; e++) {
+            sources[e] = denseOf(words, rank, sources[e]);
+            targets[e] = denseOf(words, rank, targets[e]);
+        }
+
+    }
+
+    /**
+     * Return the dense ID of a marked original ID.
+     *
+     * @param  words the marks of the IDs
+     * @param  rank  the dense ID of the first mark of each word
+     * @param  id    the original ID
+     * @return       the dense ID
+     */
+    private static int denseOf(long[] words, int[] rank, int id) {
+
+        int w = id >>> 6;
+        return rank[w] + Long.bitCount(words[w] & ((1L << id) - 1));
+
+    }
+
+}
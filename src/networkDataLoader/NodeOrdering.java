@@ -0,0 +1,34 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package networkDataLoader;
+
+/**
+ * NodeOrdering - The order in which the nodes of a loaded graph are numbered
+ *
+ * <p>The IDs of a data file usually say nothing about the structure of the
+ * graph, so the neighbours of a node are spread over the whole range of IDs,
+ * and so are the per-node arrays read while scanning them. Renumbering the
+ * nodes so that neighbours get close IDs makes those reads hit nearby cache
+ * lines. The orderings treat the graph as undirected.</p>
+ *
+ * @author Bingkun Zhao
+ *
+ * @time Last update time: 16/10/2026
+ */
+public enum NodeOrdering {
+
+    /** Keep the IDs of the file, or the dense IDs if they are remapped. */
+    NONE,
+
+    /** Breadth-first search from the lowest unvisited ID, neighbours in ID order. */
+    BFS,
+
+    /**
+     * Reverse Cuthill-McKee: breadth-first search from a node of lowest degree,
+     * neighbours by ascending degree, in reverse. Usually the smallest bandwidth.
+     */
+    RCM,
+
+    /** By descending degree, so the hubs and their states share a few cache lines. */
+    DEGREE
+
+}
@@ -0,0 +1,62 @@
+/* Copyright 2025 Bingkun Zhao & Zhongkui Ma. All rights reserved.*/
+package networkDataLoader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+/**
+ * ParallelTasks - Runs the numbered parts of a loading step on a thread pool
+ *
+ * @author Bingkun Zhao
+ *
+ * @time Last update time: 16/10/2026
+ */
+final class ParallelTasks {
+
+    private ParallelTasks() {
+    }
+
+    /**
+     * Run tasks 0 to numTasks - 1 on a pool and wait for all of them. A failure
+     * is rethrown in the calling thread once every task has finished.
+     *
+     * @param pool     the thread pool
+     * @param numTasks the amount of tasks
+     * @param task     the task, given its number
+     * @throws RuntimeException if a task fails, or the calling thread is interrupted
+     */
+    static void run(ExecutorService pool, int numTasks, IntConsumer task) {
+
+        List<Callable<Void>> calls = new ArrayList<>(numTasks);
+        for (int t = 0; t < numTasks; t++) {
+            final int number = t;
+            calls.add(() -> {
+                task.accept(number);
+                return null;
+            });
+        }
+
+        try {
+
+            for (Future<Void> future : pool.invokeAll(calls)) {
+                future.get();
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading the network", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+
+    }
+
+}